@@ -0,0 +1,42 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.jalian.springboottesting.SpringBootTestingApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... arguments) {
+        return start(WebApplicationType.NONE, arguments);
+    }
+
+    //boots the application against an in memory h2 in mysql mode, extra arguments override the defaults
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... arguments) {
+        List<String> all = new ArrayList<>(Arrays.asList(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;MODE=MySQL",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--employee.rate-limit.enabled=false",
+                "--employee.load-shedding.enabled=false"));
+        //a repeated command line property would be joined with a comma, so an argument replaces its default
+        for (String argument : arguments) {
+            String key = argument.substring(0, argument.indexOf('=') + 1);
+            all.removeIf(defaultArgument -> defaultArgument.startsWith(key));
+            all.add(argument);
+        }
+        return new SpringApplicationBuilder(SpringBootTestingApplication.class)
+                .web(webApplicationType)
+                .run(all.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,78 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.repository.EmployeeRepository;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//scores are rows per second
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class EmployeeBatchInsertBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private EmployeeRepository employeeRepository;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start();
+        employeeService = context.getBean(EmployeeService.class);
+        employeeRepository = context.getBean(EmployeeRepository.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() {
+        employeeRepository.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void singleInserts(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(employeeService.save(newEmployee()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<EmployeeBatchResult> batchInsert() {
+        List<Employee> employees = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            employees.add(newEmployee());
+        }
+        return employeeService.saveAll(employees);
+    }
+
+    private Employee newEmployee() {
+        long number = sequence.incrementAndGet();
+        return Employee.builder()
+                .firstName("amirhosein" + number)
+                .lastName("jalian")
+                .email("aj" + number + "@gmail.com")
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.jalian.springboottesting.dto.EmployeeBulkResult;
+import com.jalian.springboottesting.dto.EmployeeBulkUpdate;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//the per row variants are what a client has to do without the batch endpoints, one transaction per employee
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class EmployeeBulkBenchmark {
+
+    @Param({"100", "1000"})
+    private int rows;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private List<Employee> employees;
+
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start();
+        employeeService = context.getBean(EmployeeService.class);
+    }
+
+    //fresh rows for every call, the deletes remove them
+    @Setup(Level.Invocation)
+    public void insert() {
+        employees = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long number = sequence.incrementAndGet();
+            employees.add(Employee.builder().firstName("amirhosein" + number).lastName("jalian").email("aj" + number + "@gmail.com").build());
+        }
+        ids = new ArrayList<>(rows);
+        employeeService.saveAll(employees).forEach(result -> ids.add(result.getId()));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public int updatePerRow() {
+        for (Employee employee : employees) {
+            employeeService.update(employee.toBuilder().firstName("amir").version(null).build());
+        }
+        return employees.size();
+    }
+
+    @Benchmark
+    public EmployeeBulkResult updateBulk() {
+        return employeeService.updateAll(new EmployeeBulkUpdate(ids, "amir", null));
+    }
+
+    @Benchmark
+    public int deletePerRow() {
+        for (Long id : ids) {
+            employeeService.delete(id);
+        }
+        return ids.size();
+    }
+
+    @Benchmark
+    public EmployeeBulkResult deleteBulk() {
+        return employeeService.deleteAll(ids);
+    }
+}
@@ -0,0 +1,98 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.repository.EmployeeRepository;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//h2 ignores the connector/j flags, point it at a mysql with -Djmh.options="-p url=jdbc:mysql://... -p username=... -p password=..."
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class EmployeeDataSourceBenchmark {
+
+    private static final int EMPLOYEES = 10000;
+
+    private static final int BATCH = 100;
+
+    @Param({"default", "prod"})
+    private String profile;
+
+    @Param("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;MODE=MySQL;IGNORE_UNKNOWN_SETTINGS=TRUE")
+    private String url;
+
+    @Param("sa")
+    private String username;
+
+    @Param("")
+    private String password;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeRepository employeeRepository;
+
+    private EmployeeService employeeService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start(
+                "--spring.profiles.active=" + profile,
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password);
+        employeeRepository = context.getBean(EmployeeRepository.class);
+        employeeService = context.getBean(EmployeeService.class);
+        for (int i = 0; i < EMPLOYEES; i += BATCH) {
+            employeeService.saveAll(newEmployees());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Employee> findById() {
+        return employeeRepository.findById((long) ThreadLocalRandom.current().nextInt(1, EMPLOYEES));
+    }
+
+    @Benchmark
+    public Employee findByEmail() {
+        return employeeRepository.findByEmail("aj" + ThreadLocalRandom.current().nextInt(1, EMPLOYEES) + "@gmail.com");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<EmployeeBatchResult> saveAll() {
+        return employeeService.saveAll(newEmployees());
+    }
+
+    private List<Employee> newEmployees() {
+        List<Employee> employees = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            long number = sequence.incrementAndGet();
+            employees.add(Employee.builder()
+                    .firstName("amirhosein" + number)
+                    .lastName("jalian")
+                    .email("aj" + number + "@gmail.com")
+                    .build());
+        }
+        return employees;
+    }
+}
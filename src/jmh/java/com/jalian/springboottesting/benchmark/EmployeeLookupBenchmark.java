@@ -0,0 +1,88 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.jalian.springboottesting.dto.EmployeeLookup;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//every read reaches the database, the caches would hide the round trips this compares
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class EmployeeLookupBenchmark {
+
+    private static final int EMPLOYEES = 10000;
+
+    private static final int IDS = 100;
+
+    @Param({"0ms", "2ms"})
+    private String coalesceWindow;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start(
+                "--spring.cache.type=none",
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                "--employee.lookup.coalesce-window=" + coalesceWindow);
+        employeeService = context.getBean(EmployeeService.class);
+        ids = new ArrayList<>();
+        for (int i = 0; i < EMPLOYEES; i += 1000) {
+            List<Employee> employees = new ArrayList<>();
+            for (int j = i; j < i + 1000; j++) {
+                employees.add(Employee.builder().firstName("amirhosein" + j).lastName("jalian").email("aj" + j + "@gmail.com").build());
+            }
+            employeeService.saveAll(employees).forEach(result -> ids.add(result.getId()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    //a client resolving 100 ids one request at a time
+    @Benchmark
+    public void findByIdOneAtATime(Blackhole blackhole) {
+        for (Long id : randomIds()) {
+            blackhole.consume(employeeService.findById(id));
+        }
+    }
+
+    @Benchmark
+    public EmployeeLookup findAllById() {
+        return employeeService.findAllById(randomIds());
+    }
+
+    //independent callers, the ones that miss at the same time share a query when the window is open
+    @Benchmark
+    @Threads(16)
+    public Optional<Employee> findByIdConcurrently() {
+        return employeeService.findById(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+    }
+
+    private List<Long> randomIds() {
+        List<Long> random = new ArrayList<>(IDS);
+        for (int i = 0; i < IDS; i++) {
+            random.add(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+        }
+        return random;
+    }
+}
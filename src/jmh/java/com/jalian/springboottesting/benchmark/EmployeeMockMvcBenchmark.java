@@ -0,0 +1,143 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+//full dispatcher round trips, json binding and serialization included, without a socket in between
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class EmployeeMockMvcBenchmark {
+
+    private static final int EMPLOYEES = 1000;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start(WebApplicationType.SERVLET, "--server.port=0");
+        employeeService = context.getBean(EmployeeService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < EMPLOYEES; i++) {
+            employees.add(newEmployee());
+        }
+        ids = new ArrayList<>();
+        employeeService.saveAll(employees).forEach(result -> ids.add(result.getId()));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class DeleteState {
+
+        private Long id;
+
+        @Setup(Level.Invocation)
+        public void create(EmployeeMockMvcBenchmark benchmark) {
+            id = benchmark.employeeService.save(benchmark.newEmployee()).getId();
+        }
+    }
+
+    @Benchmark
+    public MvcResult createEmployee() throws Exception {
+        return mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(newEmployee()))).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult createEmployees() throws Exception {
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            employees.add(newEmployee());
+        }
+        return mockMvc.perform(post("/api/employees/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(employees))).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findAll() throws Exception {
+        return mockMvc.perform(get("/api/employees")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findPage() throws Exception {
+        return mockMvc.perform(get("/api/employees").param("limit", "50")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult stream() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees/stream")).andReturn();
+        return mockMvc.perform(asyncDispatch(mvcResult)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findById() throws Exception {
+        return mockMvc.perform(get("/api/employees/{id}", randomId())).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findByIdNotModified() throws Exception {
+        return mockMvc.perform(get("/api/employees/{id}", randomId()).header(HttpHeaders.IF_NONE_MATCH, "\"0\"")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult update() throws Exception {
+        Employee employee = newEmployee();
+        return mockMvc.perform(put("/api/employees/{id}", randomId()).contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(employee))).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult deleteEmployee(DeleteState deleteState) throws Exception {
+        return mockMvc.perform(delete("/api/employees/{id}", deleteState.id)).andReturn();
+    }
+
+    private Long randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private Employee newEmployee() {
+        long number = sequence.incrementAndGet();
+        return Employee.builder()
+                .firstName("amirhosein" + number)
+                .lastName("jalian")
+                .email("aj" + number + "@gmail.com")
+                .build();
+    }
+}
@@ -0,0 +1,65 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//run with -Djmh.options="-prof gc" to see the allocation per listing next to the latency
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class EmployeeProjectionBenchmark {
+
+    private static final List<String> FIELDS = Arrays.asList("id", "email");
+
+    @Param({"1000", "10000"})
+    private int employees;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start();
+        employeeService = context.getBean(EmployeeService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        List<Employee> batch = new ArrayList<>();
+        for (int i = 0; i < employees; i++) {
+            batch.add(Employee.builder()
+                    .firstName("amirhosein" + i)
+                    .lastName("jalian")
+                    .email("aj" + i + "@gmail.com")
+                    .build());
+        }
+        employeeService.saveAll(batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] full() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(employeeService.findAll());
+    }
+
+    @Benchmark
+    public byte[] projected() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(employeeService.findAll(FIELDS));
+    }
+}
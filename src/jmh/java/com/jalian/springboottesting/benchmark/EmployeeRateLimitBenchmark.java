@@ -0,0 +1,97 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.controller.EmployeeController;
+import com.jalian.springboottesting.ratelimit.LoadSheddingInterceptor;
+import com.jalian.springboottesting.ratelimit.RateLimitInterceptor;
+import com.jalian.springboottesting.ratelimit.TokenBucket;
+import com.jalian.springboottesting.service.EmployeeService;
+import com.jalian.springboottesting.service.EmployeeWriteBehindService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+//cost of the admission fast path, limits are high enough that every request is let through.
+//interceptors are shared, so -t 4 measures them under contention
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EmployeeRateLimitBenchmark {
+
+    @Param({"1000"})
+    private int clients;
+
+    private TokenBucket tokenBucket;
+
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    private LoadSheddingInterceptor loadSheddingInterceptor;
+
+    private HandlerMethod findAll;
+
+    private String clientHeader;
+
+    @Setup(Level.Trial)
+    public void setup() throws NoSuchMethodException {
+        tokenBucket = new TokenBucket(Integer.MAX_VALUE / 2, 1_000_000_000);
+        EmployeeProperties.RateLimit rateLimit = new EmployeeProperties.RateLimit();
+        rateLimit.getDefaults().setCapacity(Integer.MAX_VALUE / 2);
+        rateLimit.getDefaults().setPermitsPerSecond(1_000_000_000);
+        rateLimitInterceptor = new RateLimitInterceptor(rateLimit);
+        loadSheddingInterceptor = new LoadSheddingInterceptor(Collections.emptyList(), new EmployeeProperties.LoadShedding());
+        findAll = new HandlerMethod(new EmployeeController(mock(EmployeeService.class),
+                mock(EmployeeWriteBehindService.class), new ObjectMapper()), "findAll");
+        clientHeader = rateLimit.getClientHeader();
+    }
+
+    @Benchmark
+    public long tokenBucket() {
+        return tokenBucket.tryAcquire(System.nanoTime());
+    }
+
+    @Benchmark
+    public boolean rateLimit(Requests requests) {
+        return rateLimitInterceptor.preHandle(requests.next(), requests.response, findAll);
+    }
+
+    @Benchmark
+    public boolean loadShedding(Requests requests) {
+        MockHttpServletRequest request = requests.next();
+        boolean admitted = loadSheddingInterceptor.preHandle(request, requests.response, findAll);
+        loadSheddingInterceptor.afterCompletion(request, requests.response, findAll, null);
+        return admitted;
+    }
+
+    //mock requests are not thread safe, every benchmark thread gets its own
+    @State(Scope.Thread)
+    public static class Requests {
+
+        private MockHttpServletRequest[] requests;
+
+        private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        @Setup(Level.Trial)
+        public void setup(EmployeeRateLimitBenchmark benchmark) {
+            requests = new MockHttpServletRequest[benchmark.clients];
+            for (int i = 0; i < requests.length; i++) {
+                requests[i] = new MockHttpServletRequest("GET", "/api/employees");
+                requests[i].addHeader(benchmark.clientHeader, "client-" + i);
+            }
+        }
+
+        private MockHttpServletRequest next() {
+            return requests[ThreadLocalRandom.current().nextInt(requests.length)];
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.replica.EmployeeReplica;
+import com.jalian.springboottesting.replica.EmployeeReplicaStore;
+import com.jalian.springboottesting.service.EmployeeService;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//add -Djmh.options="-prof gc" for bytes allocated per read. bytes per entry are logged while the stores are filled
+@Slf4j
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class EmployeeReplicaBenchmark {
+
+    private static final int EMPLOYEES = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Stores {
+
+        private EmployeeReplicaStore store;
+
+        private Map<Long, Employee> hashMap;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            long before = usedHeap();
+            hashMap = new HashMap<>();
+            for (long id = 1; id <= EMPLOYEES; id++) {
+                hashMap.put(id, employee(id));
+            }
+            long hashMapBytes = usedHeap() - before;
+            store = new EmployeeReplicaStore(EMPLOYEES);
+            for (long id = 1; id <= EMPLOYEES; id++) {
+                store.put(employee(id));
+            }
+            log.info("bytes per entry: HashMap<Long, Employee> {}, replica store {} ({} off heap)",
+                    hashMapBytes / EMPLOYEES, (store.heapBytes() + store.offHeapBytes()) / EMPLOYEES,
+                    store.offHeapBytes() / EMPLOYEES);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+
+        private final EmployeeReplicaStore.Row row = new EmployeeReplicaStore.Row();
+
+        //looked up by email, built once so the benchmark does not measure string concatenation
+        private final String[] emails = new String[1024];
+
+        @Setup(Level.Trial)
+        public void emails() {
+            for (int i = 0; i < emails.length; i++) {
+                emails[i] = employee(ThreadLocalRandom.current().nextLong(1, EMPLOYEES + 1)).getEmail();
+            }
+        }
+    }
+
+    //the jpa path with every employee in EmployeeCache and the second level cache, with and without the replica
+    @State(Scope.Benchmark)
+    public static class Service {
+
+        @Param({"false", "true"})
+        private boolean replica;
+
+        private ConfigurableApplicationContext context;
+
+        private EmployeeService employeeService;
+
+        private EmployeeReplica employeeReplica;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = BenchmarkApplication.start(
+                    "--employee.replica.enabled=" + replica,
+                    "--employee.replica.expected-size=" + EMPLOYEES,
+                    "--spring.cache.caffeine.spec=maximumSize=" + EMPLOYEES * 2,
+                    "--logging.level.org.hibernate.orm.deprecation=ERROR");
+            employeeService = context.getBean(EmployeeService.class);
+            for (long from = 1; from <= EMPLOYEES; from += 1000) {
+                List<Employee> employees = new ArrayList<>(1000);
+                for (long id = from; id < from + 1000; id++) {
+                    employees.add(employee(id).toBuilder().id(null).build());
+                }
+                employeeService.saveAll(employees);
+            }
+            employeeReplica = context.getBean(EmployeeReplica.class);
+            employeeReplica.load();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public long replicaRead(Stores stores, Reader reader) {
+        stores.store.read(randomId(), reader.row);
+        return reader.row.getVersion();
+    }
+
+    @Benchmark
+    public long replicaReadByEmail(Stores stores, Reader reader) {
+        stores.store.readByEmail(reader.emails[ThreadLocalRandom.current().nextInt(reader.emails.length)], reader.row);
+        return reader.row.getId();
+    }
+
+    //what findById has to hand out
+    @Benchmark
+    public Employee replicaToEmployee(Stores stores, Reader reader) {
+        return stores.store.read(randomId(), reader.row) ? reader.row.toEmployee() : null;
+    }
+
+    @Benchmark
+    public Employee hashMapGet(Stores stores) {
+        return stores.hashMap.get(randomId());
+    }
+
+    @Benchmark
+    public Optional<Employee> serviceFindById(Service service) {
+        return service.employeeService.findById(randomId());
+    }
+
+    //the allocation free lookup, only meaningful with replica=true
+    @Benchmark
+    public long replicaReadIntoRow(Service service, Reader reader) {
+        return service.employeeReplica.read(randomId(), reader.row) ? reader.row.getVersion() : -1;
+    }
+
+    //ids come from the sequence and start at 1
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, EMPLOYEES + 1);
+    }
+
+    private static Employee employee(long id) {
+        return Employee.builder()
+                .id(id)
+                .firstName("amirhosein" + id % 1000)
+                .lastName("jalian" + id % 100)
+                .email("aj" + id + "@gmail.com")
+                .version(0L)
+                .build();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
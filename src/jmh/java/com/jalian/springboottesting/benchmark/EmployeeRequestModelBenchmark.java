@@ -0,0 +1,86 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//high concurrency against a real server: the blocking controller and the async one on tomcat with a small thread
+//pool, and the reactive profile on netty's event loops. throughput from the thrpt run and p99 from the sample run
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(128)
+@Fork(value = 1, jvmArgsAppend = "-Dhttp.maxConnections=256")
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class EmployeeRequestModelBenchmark {
+
+    private static final int EMPLOYEES = 1000;
+
+    @Param({"blocking", "async", "reactive"})
+    private String stack;
+
+    private ConfigurableApplicationContext context;
+
+    private RestTemplate restTemplate;
+
+    private String baseUrl;
+
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void start() {
+        //no caches in front of the database, the reactive side reads through r2dbc only
+        String[] arguments = {
+                "--server.port=0",
+                "--server.tomcat.threads.max=32",
+                "--employee.async.enabled=true",
+                "--spring.cache.type=none",
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "--spring.jpa.properties.hibernate.cache.use_query_cache=false"};
+        if ("reactive".equals(stack)) {
+            List<String> reactive = new ArrayList<>(Arrays.asList(arguments));
+            reactive.add("--spring.profiles.active=reactive");
+            reactive.add("--spring.r2dbc.url=r2dbc:h2:mem:///benchmark?options=DB_CLOSE_DELAY=-1;MODE=MySQL");
+            reactive.add("--spring.r2dbc.username=sa");
+            reactive.add("--spring.r2dbc.password=");
+            context = BenchmarkApplication.start(WebApplicationType.REACTIVE, reactive.toArray(new String[0]));
+        } else {
+            context = BenchmarkApplication.start(WebApplicationType.SERVLET, arguments);
+        }
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < EMPLOYEES; i++) {
+            employees.add(Employee.builder()
+                    .firstName("amirhosein" + i)
+                    .lastName("jalian")
+                    .email("aj" + i + "@gmail.com")
+                    .build());
+        }
+        ids = new ArrayList<>();
+        context.getBean(EmployeeService.class).saveAll(employees).forEach(result -> ids.add(result.getId()));
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                + ("async".equals(stack) ? "/api/async/employees/" : "/api/employees/");
+        restTemplate = new RestTemplate();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<String> findById() {
+        Long id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        return restTemplate.getForEntity(baseUrl + id, String.class);
+    }
+}
@@ -0,0 +1,72 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.jalian.springboottesting.event.EmployeeChangedEvent;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.search.EmployeeSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//sample time mode reports the p99 the type ahead cares about
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class EmployeeSearchBenchmark {
+
+    private static final String[] SYLLABLES = {"am", "ir", "ho", "se", "in", "ja", "li", "an", "ri", "ha", "na", "fe", "ty",
+            "ro", "by", "ta", "yl", "or", "sw", "ft", "ma", "ry", "jo", "hn", "da", "vi", "el", "ka", "te", "mo"};
+
+    @Param({"100000"})
+    private int employees;
+
+    private EmployeeSearchIndex employeeSearchIndex;
+
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void start() {
+        employeeSearchIndex = new EmployeeSearchIndex(null);
+        Random random = new Random(42);
+        names = new String[employees];
+        for (int i = 0; i < employees; i++) {
+            String firstName = name(random);
+            String lastName = name(random);
+            names[i] = firstName + " " + lastName;
+            employeeSearchIndex.onEmployeeChanged(EmployeeChangedEvent.saved(Employee.builder()
+                    .id((long) i + 1)
+                    .firstName(firstName)
+                    .lastName(lastName)
+                    .email(firstName + "." + lastName + i + "@gmail.com")
+                    .build()));
+        }
+    }
+
+    //what a user has typed after three keystrokes
+    @Benchmark
+    public List<Employee> prefix() {
+        return employeeSearchIndex.search(randomName().substring(0, 3), 10);
+    }
+
+    @Benchmark
+    public List<Employee> fullName() {
+        return employeeSearchIndex.search(randomName(), 10);
+    }
+
+    private String randomName() {
+        return names[ThreadLocalRandom.current().nextInt(names.length)];
+    }
+
+    private static String name(Random random) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 2 + random.nextInt(3); i > 0; i--) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return name.toString();
+    }
+}
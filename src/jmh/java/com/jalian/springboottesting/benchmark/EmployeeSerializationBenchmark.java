@@ -0,0 +1,83 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.jalian.springboottesting.model.Employee;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EmployeeSerializationBenchmark {
+
+    private static final TypeReference<List<Employee>> EMPLOYEES = new TypeReference<List<Employee>>() {
+    };
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    //json is the plain reflection based mapper, afterburner and smile are what JacksonConfig registers
+    @Param({"json", "afterburner", "smile"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+
+    private List<Employee> employees;
+
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        //configured the way spring boot configures its own mapper
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (!format.equals("json")) {
+            builder.modulesToInstall(new AfterburnerModule());
+        }
+        if (format.equals("smile")) {
+            builder.factory(new SmileFactory());
+        }
+        objectMapper = builder.build();
+        employees = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            employees.add(Employee.builder()
+                    .id(i)
+                    .firstName("amirhosein" + i)
+                    .lastName("jalian")
+                    .email("aj" + i + "@gmail.com")
+                    .version(0L)
+                    .build());
+        }
+        json = objectMapper.writeValueAsBytes(employees);
+        //bytes on the wire, as sent and after server.compression gzips the body
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(json);
+        }
+        log.info("{} with {} employees: {} bytes, {} bytes gzipped", format, size, json.length, gzipped.size());
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(employees);
+    }
+
+    @Benchmark
+    public List<Employee> deserialize() throws IOException {
+        return objectMapper.readValue(json, EMPLOYEES);
+    }
+}
@@ -0,0 +1,76 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class EmployeeServiceBenchmark {
+
+    private static final int EMPLOYEES = 1000;
+
+    @Param({"none", "caffeine"})
+    private String cache;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start("--spring.cache.type=" + cache);
+        employeeService = context.getBean(EmployeeService.class);
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < EMPLOYEES; i++) {
+            employees.add(newEmployee());
+        }
+        ids = new ArrayList<>();
+        employeeService.saveAll(employees).forEach(result -> ids.add(result.getId()));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee save() {
+        return employeeService.save(newEmployee());
+    }
+
+    @Benchmark
+    public Optional<Employee> findById() {
+        return employeeService.findById(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+    }
+
+    @Benchmark
+    public List<Employee> findAll() {
+        return employeeService.findAll();
+    }
+
+    private Employee newEmployee() {
+        long number = sequence.incrementAndGet();
+        return Employee.builder()
+                .firstName("amirhosein" + number)
+                .lastName("jalian")
+                .email("aj" + number + "@gmail.com")
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.jalian.springboottesting.startup.StartupWarmup;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+//cold start until readiness, one start per forked jvm. default keeps ddl-auto=update like application.properties
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(5)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class EmployeeStartupBenchmark {
+
+    @Param({"default", "fast-startup"})
+    private String profile;
+
+    private ConfigurableApplicationContext context;
+
+    @Benchmark
+    public boolean startUntilReady() throws InterruptedException {
+        context = profile.equals("default")
+                ? BenchmarkApplication.start(WebApplicationType.SERVLET, "--server.port=0", "--spring.jpa.hibernate.ddl-auto=update")
+                : BenchmarkApplication.start(WebApplicationType.SERVLET, "--server.port=0", "--spring.profiles.active=fast-startup",
+                "--spring.jpa.hibernate.ddl-auto=none");
+        StartupWarmup startupWarmup = context.getBean(StartupWarmup.class);
+        while (!startupWarmup.isWarm()) {
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() {
+        context.close();
+    }
+}
@@ -0,0 +1,56 @@
+package com.jalian.springboottesting.benchmark;
+
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeService;
+import com.jalian.springboottesting.service.EmployeeWriteBehindService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//a burst of creates from 64 callers, each in a transaction of its own against the write-behind queue's group
+//commits. every caller waits until its employee is committed, as a POST without Prefer: respond-async does
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(64)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class EmployeeWriteBehindBenchmark {
+
+    @Param({"false", "true"})
+    private boolean writeBehind;
+
+    private ConfigurableApplicationContext context;
+
+    private EmployeeService employeeService;
+
+    private EmployeeWriteBehindService employeeWriteBehindService;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start("--employee.write-behind.enabled=" + writeBehind);
+        employeeService = context.getBean(EmployeeService.class);
+        employeeWriteBehindService = context.getBean(EmployeeWriteBehindService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee create() {
+        long n = sequence.incrementAndGet();
+        Employee employee = Employee.builder()
+                .firstName("amirhosein" + n)
+                .lastName("jalian")
+                .email("aj" + n + "@gmail.com")
+                .build();
+        return writeBehind ? employeeWriteBehindService.save(employee) : employeeService.save(employee);
+    }
+}
@@ -0,0 +1,128 @@
+package com.jalian.springboottesting.cache;
+
+import com.jalian.springboottesting.model.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//a reader that loaded an employee before a write committed may put it after the write's evict. readers take the
+//generation before they load, and whatever was evicted since is not kept
+@Component
+public class EmployeeCache {
+
+    public static final String EMPLOYEES = "employees";
+
+    public static final String EMPLOYEE_EMAILS = "employeeEmails";
+
+    private static final int STRIPES = 4096;
+
+    private final Cache employees;
+
+    private final Cache employeeEmails;
+
+    //counts evicts, and per stripe of ids the generation of the last one
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLongArray evictedAt = new AtomicLongArray(STRIPES);
+
+    @Autowired
+    public EmployeeCache(CacheManager cacheManager) {
+        this.employees = cache(cacheManager, EMPLOYEES);
+        this.employeeEmails = cache(cacheManager, EMPLOYEE_EMAILS);
+    }
+
+    public Optional<Employee> get(Long id) {
+        return Optional.ofNullable(employees.get(id, Employee.class)).map(EmployeeCache::copy);
+    }
+
+    public Optional<Employee> getByEmail(String email) {
+        Long id = employeeEmails.get(emailKey(email), Long.class);
+        if (id == null) {
+            return Optional.empty();
+        }
+        //the email index may point at an employee whose email has changed since
+        return get(id).filter(employee -> emailKey(employee.getEmail()).equals(emailKey(email)));
+    }
+
+    //for writers, inside a transaction it is applied after commit, so rolled back writes never reach the cache
+    public void put(Employee employee) {
+        Employee copy = copy(employee);
+        afterCommit(() -> store(copy));
+    }
+
+    //taken by a reader before it loads what it is going to put
+    public long generation() {
+        return generation.get();
+    }
+
+    //for readers, the employee is dropped again if it was evicted after the reader took the generation
+    public void put(Employee employee, long loadedAt) {
+        store(copy(employee));
+        //an evict that runs after this check removes the employee itself
+        if (evictedAt.get(stripe(employee.getId())) > loadedAt) {
+            remove(employee.getId());
+        }
+    }
+
+    //inside a transaction it is applied after commit, a reader of the old row before that would put it back
+    public void evict(Long id) {
+        afterCommit(() -> {
+            long evicted = generation.incrementAndGet();
+            evictedAt.accumulateAndGet(stripe(id), evicted, Math::max);
+            remove(id);
+        });
+    }
+
+    private void store(Employee employee) {
+        employees.put(employee.getId(), employee);
+        employeeEmails.put(emailKey(employee.getEmail()), employee.getId());
+    }
+
+    private void remove(Long id) {
+        Employee cached = employees.get(id, Employee.class);
+        if (cached != null) {
+            employeeEmails.evict(emailKey(cached.getEmail()));
+        }
+        employees.evict(id);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static int stripe(Long id) {
+        return Long.hashCode(id) & (STRIPES - 1);
+    }
+
+    private static Cache cache(CacheManager cacheManager, String name) {
+        return Objects.requireNonNull(cacheManager.getCache(name), "cache " + name + " is not configured");
+    }
+
+    //mysql compares emails case insensitively, the index does the same
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    //callers mutate what they get back, never hand out the cached instance
+    private static Employee copy(Employee employee) {
+        return employee.toBuilder().build();
+    }
+}
@@ -0,0 +1,109 @@
+package com.jalian.springboottesting.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.dto.EmployeeChange;
+import com.jalian.springboottesting.event.EmployeeChangedEvent;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.replica.EmployeeReplica;
+import com.jalian.springboottesting.search.EmployeeSearchIndex;
+import com.jalian.springboottesting.service.EmployeeChangeService;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+//hibernate only evicts what this node wrote, so every node follows the outbox and evicts what the other nodes changed,
+//from the second level cache, the employee query cache, EmployeeCache and EmployeeReplica, and applies it to
+//EmployeeSearchIndex. its own changes were already applied when they committed, evicting them again would only throw
+//away fresh entries
+@Component
+public class EmployeeCacheInvalidator {
+
+    private final EmployeeChangeService employeeChangeService;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final EmployeeCache employeeCache;
+
+    private final EmployeeReplica employeeReplica;
+
+    private final EmployeeSearchIndex employeeSearchIndex;
+
+    private final ObjectMapper objectMapper;
+
+    private final int batchSize;
+
+    private final String nodeId;
+
+    //changes numbered before the caches were filled cannot be in them
+    private long position;
+
+    @Autowired
+    public EmployeeCacheInvalidator(EmployeeChangeService employeeChangeService, EntityManagerFactory entityManagerFactory,
+                                    EmployeeCache employeeCache, EmployeeReplica employeeReplica,
+                                    EmployeeSearchIndex employeeSearchIndex, ObjectMapper objectMapper,
+                                    EmployeeProperties employeeProperties) {
+        this.employeeChangeService = employeeChangeService;
+        this.entityManagerFactory = entityManagerFactory;
+        this.employeeCache = employeeCache;
+        this.employeeReplica = employeeReplica;
+        this.employeeSearchIndex = employeeSearchIndex;
+        this.objectMapper = objectMapper;
+        this.batchSize = employeeProperties.getOutbox().getBatchSize();
+        this.nodeId = employeeProperties.getOutbox().getNodeId();
+        this.position = employeeChangeService.lastPosition();
+    }
+
+    @Scheduled(fixedDelayString = "${employee.outbox.relay-interval-ms:200}")
+    public synchronized void follow() {
+        List<EmployeeChange> changes;
+        do {
+            changes = employeeChangeService.findSince(position, batchSize);
+            if (!changes.isEmpty()) {
+                List<EmployeeChange> remote = changes.stream()
+                        .filter(change -> !nodeId.equals(change.getNodeId()))
+                        .collect(Collectors.toList());
+                if (!remote.isEmpty()) {
+                    invalidate(remote);
+                }
+                position = changes.get(changes.size() - 1).getPosition();
+            }
+        } while (changes.size() == batchSize);
+    }
+
+    //the hook for any other transport between nodes as well
+    public void invalidate(List<EmployeeChange> changes) {
+        Set<Long> ids = new LinkedHashSet<>();
+        changes.forEach(change -> ids.add(change.getId()));
+        for (Long id : ids) {
+            entityManagerFactory.getCache().evict(Employee.class, id);
+            employeeCache.evict(id);
+        }
+        employeeReplica.refresh(ids);
+        //cached query results are checked against this node's update timestamps, which never saw the remote write
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegion(Employee.QUERY_CACHE_REGION);
+        //the search index is only rebuilt at startup, it takes the payloads in outbox order so the last change wins
+        changes.forEach(this::index);
+    }
+
+    private void index(EmployeeChange change) {
+        if (change.getType() == EmployeeChangedEvent.Type.DELETED) {
+            employeeSearchIndex.onEmployeeChanged(EmployeeChangedEvent.deleted(change.getId()));
+            return;
+        }
+        try {
+            employeeSearchIndex.onEmployeeChanged(EmployeeChangedEvent.updated(objectMapper.readValue(change.getEmployee(), Employee.class)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
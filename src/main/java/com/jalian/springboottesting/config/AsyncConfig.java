@@ -0,0 +1,42 @@
+package com.jalian.springboottesting.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+//callables and streamed exports get a pool of their own, sized by employee.async.*. it is not a bean, an Executor
+//bean would replace spring boot's applicationTaskExecutor instead of sitting next to it. this configurer runs after
+//spring boot's own, so its executor is the one spring mvc keeps
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@EnableConfigurationProperties(EmployeeProperties.class)
+public class AsyncConfig implements WebMvcConfigurer, DisposableBean {
+
+    private final ThreadPoolTaskExecutor employeeAsyncExecutor = new ThreadPoolTaskExecutor();
+
+    @Autowired
+    public AsyncConfig(EmployeeProperties employeeProperties) {
+        EmployeeProperties.Async async = employeeProperties.getAsync();
+        employeeAsyncExecutor.setBeanName("employeeAsyncExecutor");
+        employeeAsyncExecutor.setThreadNamePrefix("employee-async-");
+        employeeAsyncExecutor.setCorePoolSize(async.getCoreSize());
+        employeeAsyncExecutor.setMaxPoolSize(async.getMaxSize());
+        employeeAsyncExecutor.setQueueCapacity(async.getQueueCapacity());
+        employeeAsyncExecutor.initialize();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(employeeAsyncExecutor);
+    }
+
+    @Override
+    public void destroy() {
+        employeeAsyncExecutor.shutdown();
+    }
+}
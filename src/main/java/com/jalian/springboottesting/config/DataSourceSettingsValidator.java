@@ -0,0 +1,96 @@
+package com.jalian.springboottesting.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//only warns, a badly tuned pool is slow but still correct
+@Slf4j
+@Component
+public class DataSourceSettingsValidator {
+
+    private final List<HikariDataSource> pools;
+
+    private final int jdbcBatchSize;
+
+    @Autowired
+    public DataSourceSettingsValidator(List<HikariDataSource> pools,
+                                       @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:1}") int jdbcBatchSize) {
+        this.pools = pools;
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void validate() {
+        if (pools.isEmpty()) {
+            log.warn("the datasource is not a hikari pool, its settings are not validated");
+        }
+        for (HikariDataSource pool : pools) {
+            check(pool).forEach(warning -> log.warn("{}: {}", pool.getPoolName(), warning));
+        }
+    }
+
+    List<String> check(HikariDataSource hikari) {
+        List<String> warnings = new ArrayList<>();
+        if (hikari.getMinimumIdle() < hikari.getMaximumPoolSize()) {
+            warnings.add("minimum-idle " + hikari.getMinimumIdle() + " is below maximum-pool-size " + hikari.getMaximumPoolSize()
+                    + ", a fixed size pool avoids opening connections under load");
+        }
+        String url = hikari.getJdbcUrl();
+        if (url == null || !url.startsWith("jdbc:mysql:")) {
+            return warnings;
+        }
+        Map<String, String> driver = driverProperties(hikari);
+        if (!"true".equalsIgnoreCase(driver.get("cachePrepStmts"))) {
+            warnings.add("cachePrepStmts is off, every statement is prepared again");
+        } else {
+            if (intValue(driver.get("prepStmtCacheSize"), 25) < 250) {
+                warnings.add("prepStmtCacheSize is below 250");
+            }
+            if (intValue(driver.get("prepStmtCacheSqlLimit"), 256) < 2048) {
+                warnings.add("prepStmtCacheSqlLimit is below 2048, longer statements are not cached");
+            }
+        }
+        if (!"true".equalsIgnoreCase(driver.get("useServerPrepStmts"))) {
+            warnings.add("useServerPrepStmts is off, statements are prepared on the client");
+        }
+        if (jdbcBatchSize > 1 && !"true".equalsIgnoreCase(driver.get("rewriteBatchedStatements"))) {
+            warnings.add("rewriteBatchedStatements is off, jdbc batches of " + jdbcBatchSize + " go out row by row");
+        }
+        return warnings;
+    }
+
+    //the driver reads both the url query and the hikari data-source-properties, the properties win
+    private static Map<String, String> driverProperties(HikariDataSource hikari) {
+        Map<String, String> properties = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        String url = hikari.getJdbcUrl();
+        int query = url.indexOf('?');
+        if (query >= 0) {
+            for (String parameter : url.substring(query + 1).split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals > 0) {
+                    properties.put(parameter.substring(0, equals), parameter.substring(equals + 1));
+                }
+            }
+        }
+        hikari.getDataSourceProperties().forEach((key, value) -> properties.put(key.toString(), value.toString()));
+        return properties;
+    }
+
+    private static int intValue(String value, int driverDefault) {
+        try {
+            return value == null ? driverDefault : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return driverDefault;
+        }
+    }
+}
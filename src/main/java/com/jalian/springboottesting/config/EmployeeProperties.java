@@ -0,0 +1,228 @@
+package com.jalian.springboottesting.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee")
+public class EmployeeProperties {
+
+    private Page page = new Page();
+
+    private Batch batch = new Batch();
+
+    private BulkImport bulkImport = new BulkImport();
+
+    private RateLimit rateLimit = new RateLimit();
+
+    private LoadShedding loadShedding = new LoadShedding();
+
+    private Outbox outbox = new Outbox();
+
+    private Startup startup = new Startup();
+
+    private Lookup lookup = new Lookup();
+
+    private Replica replica = new Replica();
+
+    private WriteBehind writeBehind = new WriteBehind();
+
+    private Async async = new Async();
+
+    @Getter
+    @Setter
+    public static class Page {
+
+        private int maxLimit = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+
+        //rows per duplicate check query and per flush
+        private int chunkSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class BulkImport {
+
+        //rows per transaction, a failing chunk never rolls back the ones before it
+        private int chunkSize = 1000;
+
+        private int maxReportedRejections = 1000;
+
+        //finished jobs kept for the status resource
+        private int retainedJobs = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class RateLimit {
+
+        private boolean enabled = true;
+
+        //requests carrying this header are limited per key, the rest per remote address
+        private String clientHeader = "X-API-Key";
+
+        //keys with buckets of their own per remote address, the address shares one bucket among the rest. raise it
+        //behind a proxy, where every client has the proxy's address
+        private int maxKeysPerAddress = 16;
+
+        //buckets kept per endpoint, a forgotten client starts over with a full bucket
+        private int maxClients = 100_000;
+
+        private Limit defaults = new Limit();
+
+        //keyed by Controller#method, e.g. employee.rate-limit.endpoints[EmployeeController#findAll].capacity
+        private Map<String, Limit> endpoints = new HashMap<>();
+    }
+
+    @Getter
+    @Setter
+    public static class Limit {
+
+        //requests a client may send in a burst
+        private int capacity = 100;
+
+        private double permitsPerSecond = 50;
+    }
+
+    @Getter
+    @Setter
+    public static class LoadShedding {
+
+        private boolean enabled = true;
+
+        //threads blocked on a jdbc connection, summed over all pools
+        private int maxPoolWaiters = 10;
+
+        //a slower request shrinks the concurrency limit by a tenth, a faster one grows it by one
+        private Duration latencyThreshold = Duration.ofMillis(500);
+
+        private int minConcurrency = 8;
+
+        private int maxConcurrency = 200;
+
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Outbox {
+
+        //rows numbered per relay run, also the page size a lagging subscriber catches up with
+        private int batchSize = 500;
+
+        //pages a lagging subscriber may read per relay run, so it cannot hold up the others for long
+        private int maxCatchUpBatches = 10;
+
+        //relayed rows older than this are deleted, a consumer resuming from before them gets 410
+        private Duration retention = Duration.ofDays(7);
+
+        //EventSource reconnects on its own with Last-Event-ID
+        private Duration subscriptionTimeout = Duration.ofMinutes(30);
+
+        //threads that write to the subscribers, a slow client holds one of them and nothing else
+        private int senderThreads = 4;
+
+        //subscribers waiting for a sender thread, beyond that they are skipped and catch up on a later run
+        private int senderQueueCapacity = 10000;
+
+        //tags the rows this node writes, so its invalidator skips them. a new one per start, after a restart the
+        //rows from before only cost evictions
+        private String nodeId = UUID.randomUUID().toString();
+    }
+
+    @Getter
+    @Setter
+    public static class Startup {
+
+        //employees loaded into the caches before readiness is reported
+        private int warmUpEmployees = 1000;
+
+        //how long to wait for each pool to open its minimum idle connections
+        private Duration poolTimeout = Duration.ofSeconds(30);
+
+        //stops the application once warm, for class data sharing training runs and startup measurements
+        private boolean exitWhenReady = false;
+    }
+
+    @Getter
+    @Setter
+    public static class Lookup {
+
+        //ids accepted by one multi-get request
+        private int maxIds = 1000;
+
+        //ids per where id in (...) statement
+        private int chunkSize = 500;
+
+        //how long a findById miss waits for others to share its query, only while other lookups are running.
+        //zero turns coalescing off
+        private Duration coalesceWindow = Duration.ofMillis(2);
+
+        //a batch this large is queried without waiting out the window
+        private int maxBatchSize = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class Replica {
+
+        //keep every employee in memory and serve findById and findByEmail from there
+        private boolean enabled = false;
+
+        //initial capacity, the store grows past it
+        private int expectedSize = 100_000;
+    }
+
+    @Getter
+    @Setter
+    public static class WriteBehind {
+
+        //queue POST /api/employees and write them in groups, see the README for what a 202 promises
+        private boolean enabled = false;
+
+        //queued creates beyond this answer 503
+        private int capacity = 10_000;
+
+        //employees per group commit, at most employee.batch.chunk-size keeps it to one duplicate check
+        private int maxBatchSize = 500;
+
+        //finished writes whose status can still be looked up
+        private int retainedWrites = 10_000;
+
+        //how long a create waits for its group before it answers 202, below spring.mvc.async.request-timeout so
+        //the async controller answers first
+        private Duration waitTimeout = Duration.ofSeconds(25);
+
+        //how long shutdown waits for the queue to drain, whatever is left is lost
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Async {
+
+        //serve /api/async/employees
+        private boolean enabled = false;
+
+        //threads of the executor behind Callables and streamed exports, spring.task.execution.pool.* is left to the
+        //application's own @Async work
+        private int coreSize = 16;
+
+        private int maxSize = 64;
+
+        //queued requests beyond this answer 503
+        private int queueCapacity = 1000;
+    }
+}
@@ -0,0 +1,100 @@
+package com.jalian.springboottesting.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+//read only transactions go to the replica unless the current caller has just written. whatever outlives the
+//request, EmployeeCache, the second level cache and the in-memory copies, is only filled from the primary
+public class EmployeeRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder {
+
+    private static final ThreadLocal<Boolean> STICKY = new ThreadLocal<>();
+
+    private final LongAdder primaryConnections = new LongAdder();
+
+    private final LongAdder replicaConnections = new LongAdder();
+
+    public static void stickToPrimary() {
+        STICKY.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        STICKY.remove();
+    }
+
+    public static boolean isStuckToPrimary() {
+        return STICKY.get() != null;
+    }
+
+    //for reads whose result is cached, a lagging replica would keep serving the old version long after it caught up
+    public static <T> T onPrimary(Supplier<T> read) {
+        if (isStuckToPrimary()) {
+            return read.get();
+        }
+        stickToPrimary();
+        try {
+            return read.get();
+        } finally {
+            clear();
+        }
+    }
+
+    public static void onPrimary(Runnable read) {
+        onPrimary(() -> {
+            read.run();
+            return null;
+        });
+    }
+
+    //only correct behind a LazyConnectionDataSourceProxy, otherwise the connection is taken before the read only flag is set
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && STICKY.get() == null) {
+            replicaConnections.increment();
+            cacheMode(CacheMode.GET);
+            return Target.REPLICA;
+        }
+        //open session in view keeps one session for the whole request, a later primary read may fill the caches again
+        cacheMode(CacheMode.NORMAL);
+        primaryConnections.increment();
+        return Target.PRIMARY;
+    }
+
+    //with GET the session still reads the second level and query caches, but what it loads is not put there
+    private static void cacheMode(CacheMode cacheMode) {
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof EntityManagerHolder) {
+                ((EntityManagerHolder) resource).getEntityManager().unwrap(Session.class).setCacheMode(cacheMode);
+            }
+        }
+    }
+
+    //registered through a MeterBinder bean, the meter registry itself depends on the datasources
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("employee.datasource.routing", primaryConnections, LongAdder::sum)
+                .tag("target", Target.PRIMARY.tag)
+                .register(registry);
+        FunctionCounter.builder("employee.datasource.routing", replicaConnections, LongAdder::sum)
+                .tag("target", Target.REPLICA.tag)
+                .register(registry);
+    }
+
+    public enum Target {
+        PRIMARY("primary"), REPLICA("replica");
+
+        private final String tag;
+
+        Target(String tag) {
+            this.tag = tag;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.jalian.springboottesting.config;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+//a client that wrote within the window reads from the primary, the cookie keeps that across instances
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String LAST_WRITE_COOKIE = "employee-last-write";
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !isSafe(request.getMethod());
+        if (write) {
+            Cookie cookie = new Cookie(LAST_WRITE_COOKIE, Long.toString(now));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (window.toMillis() + 999) / 1000));
+            response.addCookie(cookie);
+        }
+        boolean sticky = write || now - lastWrite(request) < window.toMillis();
+        if (sticky) {
+            EmployeeRoutingDataSource.stickToPrimary();
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (sticky) {
+                EmployeeRoutingDataSource.clear();
+            }
+        }
+    }
+
+    private static boolean isSafe(String method) {
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+
+    private static long lastWrite(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (LAST_WRITE_COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,44 @@
+package com.jalian.springboottesting.config;
+
+import com.jalian.springboottesting.ratelimit.LoadSheddingInterceptor;
+import com.jalian.springboottesting.ratelimit.RateLimitInterceptor;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class RequestLimitConfig {
+
+    private static final String[] EMPLOYEE_API = {"/api/employees/**", "/api/async/employees/**"};
+
+    @Bean
+    @ConditionalOnProperty(prefix = "employee.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public RateLimitInterceptor rateLimitInterceptor(EmployeeProperties employeeProperties) {
+        return new RateLimitInterceptor(employeeProperties.getRateLimit());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "employee.load-shedding", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public LoadSheddingInterceptor loadSheddingInterceptor(List<HikariDataSource> pools, EmployeeProperties employeeProperties) {
+        return new LoadSheddingInterceptor(pools, employeeProperties.getLoadShedding());
+    }
+
+    //rate limit first, so a client over its own limit never takes a concurrency slot
+    @Bean
+    public WebMvcConfigurer requestLimitConfigurer(ObjectProvider<RateLimitInterceptor> rateLimitInterceptor,
+                                                   ObjectProvider<LoadSheddingInterceptor> loadSheddingInterceptor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                rateLimitInterceptor.ifAvailable(interceptor -> registry.addInterceptor(interceptor).addPathPatterns(EMPLOYEE_API));
+                loadSheddingInterceptor.ifAvailable(interceptor -> registry.addInterceptor(interceptor).addPathPatterns(EMPLOYEE_API));
+            }
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package com.jalian.springboottesting.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.UUID;
+
+//regions are configured in application.conf, the caffeine jcache configuration file
+@Configuration
+public class SecondLevelCacheConfig {
+
+    //jcache hands out one cache manager per uri and jvm, a uri of its own keeps application contexts that share
+    //a jvm (tests) from sharing entries, and hibernate closing it on shutdown from closing the others
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheManager() {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("employee-" + UUID.randomUUID()), SecondLevelCacheConfig.class.getClassLoader()));
+    }
+}
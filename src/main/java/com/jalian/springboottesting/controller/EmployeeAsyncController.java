@@ -0,0 +1,102 @@
+package com.jalian.springboottesting.controller;
+
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.dto.EmployeeLookup;
+import com.jalian.springboottesting.dto.EmployeeWrite;
+import com.jalian.springboottesting.dto.EmployeePage;
+import com.jalian.springboottesting.exception.WritePendingException;
+import com.jalian.springboottesting.model.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+//same contract as EmployeeController, but the blocking work runs on the bounded executor of AsyncConfig
+//(employee.async.*) and the servlet container thread is released while it waits on jdbc
+@RestController
+@RequestMapping("/api/async/employees")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "employee.async", name = "enabled", havingValue = "true")
+public class EmployeeAsyncController {
+
+    private final EmployeeController employeeController;
+
+    @Autowired
+    public EmployeeAsyncController(EmployeeController employeeController) {
+        this.employeeController = employeeController;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Callable<Employee> createEmployee(@RequestBody Employee employee) {
+        return () -> employeeController.createEmployee(employee);
+    }
+
+    @PostMapping("/batch")
+    public Callable<List<EmployeeBatchResult>> createEmployees(@RequestBody List<Employee> employees) {
+        return () -> employeeController.createEmployees(employees);
+    }
+
+    @GetMapping
+    public Callable<List<Employee>> findAll() {
+        return employeeController::findAll;
+    }
+
+    @GetMapping(params = {"fields", "!limit"})
+    public Callable<List<Map<String, Object>>> findAll(@RequestParam List<String> fields) {
+        return () -> employeeController.findAll(fields);
+    }
+
+    @GetMapping(params = {"ids", "!fields", "!limit"})
+    public Callable<EmployeeLookup> findAllById(@RequestParam List<Long> ids) {
+        return () -> employeeController.findAllById(ids);
+    }
+
+    @PostMapping("/lookup")
+    public Callable<EmployeeLookup> lookup(@RequestBody List<Long> ids) {
+        return () -> employeeController.lookup(ids);
+    }
+
+    @GetMapping(params = "limit")
+    public Callable<EmployeePage> findPage(@RequestParam(defaultValue = "0") long after, @RequestParam int limit) {
+        return () -> employeeController.findPage(after, limit);
+    }
+
+    @GetMapping("/{id}")
+    public Callable<ResponseEntity<Employee>> findById(@PathVariable Long id) {
+        return () -> employeeController.findById(id);
+    }
+
+    @PutMapping("/{id}")
+    public Callable<ResponseEntity<Employee>> update(@PathVariable Long id, @RequestBody Employee employee,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return () -> employeeController.update(id, employee, ifMatch);
+    }
+
+    @DeleteMapping("{id}")
+    public Callable<ResponseEntity<String>> deleteEmployee(@PathVariable("id") long employeeId,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return () -> employeeController.deleteEmployee(employeeId, ifMatch);
+    }
+
+    //the group did not commit within employee.write-behind.wait-timeout, answer as if respond-async had been asked for
+    @ExceptionHandler(WritePendingException.class)
+    public ResponseEntity<EmployeeWrite> writePending(WritePendingException e) {
+        return ResponseEntity.accepted().location(URI.create("/api/employees/writes/" + e.getWrite().getId())).body(e.getWrite());
+    }
+
+    //the executor queue is full, shed the request instead of queueing it unbounded
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Void> rejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+}
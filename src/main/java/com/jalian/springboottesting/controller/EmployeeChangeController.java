@@ -0,0 +1,28 @@
+package com.jalian.springboottesting.controller;
+
+import com.jalian.springboottesting.outbox.EmployeeChangeRelay;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/employees/changes")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class EmployeeChangeController {
+
+    private final EmployeeChangeRelay employeeChangeRelay;
+
+    @Autowired
+    public EmployeeChangeController(EmployeeChangeRelay employeeChangeRelay) {
+        this.employeeChangeRelay = employeeChangeRelay;
+    }
+
+    //every event id is a position, EventSource sends the last one back as Last-Event-ID when it reconnects
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestParam(required = false) Long since,
+                              @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return employeeChangeRelay.subscribe(lastEventId != null ? lastEventId : since);
+    }
+}
@@ -1,29 +1,115 @@
 package com.jalian.springboottesting.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.dto.EmployeeBulkResult;
+import com.jalian.springboottesting.dto.EmployeeBulkUpdate;
+import com.jalian.springboottesting.dto.EmployeeLookup;
+import com.jalian.springboottesting.dto.EmployeePage;
+import com.jalian.springboottesting.dto.EmployeeWrite;
+import com.jalian.springboottesting.exception.PreconditionFailedException;
+import com.jalian.springboottesting.exception.ResourceNotFoundException;
+import com.jalian.springboottesting.exception.WritePendingException;
+import com.jalian.springboottesting.exception.WriteQueueFullException;
 import com.jalian.springboottesting.model.Employee;
 import com.jalian.springboottesting.service.EmployeeService;
+import com.jalian.springboottesting.service.EmployeeWriteBehindService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/employees")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class EmployeeController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    private static final String PREFER = "Prefer";
+
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final EmployeeService employeeService;
 
+    private final EmployeeWriteBehindService employeeWriteBehindService;
+
+    private final ObjectMapper objectMapper;
+
     @Autowired
-    public EmployeeController(EmployeeService employeeService) {
+    public EmployeeController(EmployeeService employeeService, EmployeeWriteBehindService employeeWriteBehindService,
+                              ObjectMapper objectMapper) {
         this.employeeService = employeeService;
+        this.employeeWriteBehindService = employeeWriteBehindService;
+        this.objectMapper = objectMapper;
     }
 
+    //with employee.write-behind.enabled this waits until the group holding the employee has committed
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Employee createEmployee(@RequestBody Employee employee) {
-        return employeeService.save(employee);
+        return employeeWriteBehindService.isEnabled() ? employeeWriteBehindService.save(employee) : employeeService.save(employee);
+    }
+
+    //Prefer: respond-async answers 202 once the employee is queued, the Location reports whether it was written
+    @PostMapping(headers = PREFER)
+    public ResponseEntity<?> createEmployee(@RequestBody Employee employee, @RequestHeader(PREFER) String prefer) {
+        if (!employeeWriteBehindService.isEnabled() || !respondAsync(prefer)) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(createEmployee(employee));
+        }
+        EmployeeWrite write = employeeWriteBehindService.submit(employee);
+        return ResponseEntity.accepted().location(URI.create("/api/employees/writes/" + write.getId()))
+                .header("Preference-Applied", RESPOND_ASYNC).body(write);
+    }
+
+    @GetMapping("/writes/{id}")
+    public ResponseEntity<EmployeeWrite> findWrite(@PathVariable long id) {
+        return employeeWriteBehindService.findWrite(id).map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    //the write queue is full, shed the request instead of queueing it unbounded
+    @ExceptionHandler(WriteQueueFullException.class)
+    public ResponseEntity<Void> writeQueueFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    //the group did not commit within employee.write-behind.wait-timeout, answer as if respond-async had been asked for
+    @ExceptionHandler(WritePendingException.class)
+    public ResponseEntity<EmployeeWrite> writePending(WritePendingException e) {
+        return ResponseEntity.accepted().location(URI.create("/api/employees/writes/" + e.getWrite().getId())).body(e.getWrite());
+    }
+
+    @PostMapping("/batch")
+    public List<EmployeeBatchResult> createEmployees(@RequestBody List<Employee> employees) {
+        return employeeService.saveAll(employees);
+    }
+
+    //set based, a few statements per chunk of employee.batch.chunk-size ids instead of one request per employee
+    @PatchMapping("/batch")
+    public EmployeeBulkResult updateEmployees(@RequestBody EmployeeBulkUpdate update) {
+        return employeeService.updateAll(update);
+    }
+
+    @DeleteMapping("/batch")
+    public EmployeeBulkResult deleteEmployees(@RequestBody List<Long> ids) {
+        return employeeService.deleteAll(ids);
     }
 
     @GetMapping
@@ -31,28 +117,174 @@ public class EmployeeController {
         return employeeService.findAll();
     }
 
+    //sparse fieldset, e.g. ?fields=id,email selects just those two columns
+    @GetMapping(params = {"fields", "!limit"})
+    public List<Map<String, Object>> findAll(@RequestParam List<String> fields) {
+        return employeeService.findAll(fields);
+    }
+
+    //?ids=1,2,3 answers with one query, the body lists the ids that have no employee
+    @GetMapping(params = {"ids", "!fields", "!limit"})
+    public EmployeeLookup findAllById(@RequestParam List<Long> ids) {
+        return employeeService.findAllById(ids);
+    }
+
+    //the same for id lists too long for a url
+    @PostMapping("/lookup")
+    public EmployeeLookup lookup(@RequestBody List<Long> ids) {
+        return employeeService.findAllById(ids);
+    }
+
+    @GetMapping(params = "limit")
+    public EmployeePage findPage(@RequestParam(defaultValue = "0") long after, @RequestParam int limit) {
+        return employeeService.findPage(after, limit);
+    }
+
+    @GetMapping("/search")
+    public List<Employee> search(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return employeeService.search(q, limit);
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                employeeService.forEach(employee -> {
+                    try {
+                        generator.writeObject(employee);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    //nightly export, rows go from a forward only result set straight to the socket. server.compression gzips both
+    //formats for clients that accept it
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportNdjson() {
+        return ResponseEntity.ok().contentType(NDJSON).body(outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                //every line ends with its own newline instead of the default space between root values
+                generator.setRootValueSeparator(null);
+                employeeService.forEachRow(employee -> {
+                    try {
+                        generator.writeObject(employee);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        });
+    }
+
+    @GetMapping(value = "/export", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv() {
+        return ResponseEntity.ok().contentType(CSV).body(outputStream -> {
+            try (Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+                writer.write("id,firstName,lastName,email,version\n");
+                employeeService.forEachRow(employee -> {
+                    try {
+                        writer.write(employee.getId() + "," + csv(employee.getFirstName()) + "," + csv(employee.getLastName())
+                                + "," + csv(employee.getEmail()) + "," + employee.getVersion() + "\n");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        });
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Employee> findById(@PathVariable Long id) {
-        return employeeService.findById(id).map(ResponseEntity :: ok)
+        //spring answers If-None-Match with 304 from the ETag, without writing the body
+        return employeeService.findById(id).map(EmployeeController :: okWithETag)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Employee> update(@PathVariable Long id, @RequestBody Employee employee) {
-        return employeeService.findById(id).map(
-                savedEmployee -> {
-                    savedEmployee.setFirstName(employee.getFirstName());
-                    savedEmployee.setLastName(employee.getLastName());
-                    savedEmployee.setEmail(employee.getEmail());
-                    Employee updatedEmployee = employeeService.update(savedEmployee);
-                    return new ResponseEntity<>(updatedEmployee, HttpStatus.OK);
-                }
-        ).orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<Employee> update(@PathVariable Long id, @RequestBody Employee employee,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        employee.setId(id);
+        try {
+            employee.setVersion(ifMatchVersion(ifMatch));
+            Employee updatedEmployee = employeeService.update(employee);
+            return okWithETag(updatedEmployee);
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
     }
 
     @DeleteMapping("{id}")
-    public ResponseEntity<String> deleteEmployee(@PathVariable("id") long employeeId){
-        employeeService.delete(employeeId);
+    public ResponseEntity<String> deleteEmployee(@PathVariable("id") long employeeId,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        try {
+            Long version = ifMatchVersion(ifMatch);
+            if (version == null) {
+                employeeService.delete(employeeId);
+            } else {
+                employeeService.delete(employeeId, version);
+            }
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
         return new ResponseEntity<String>("Employee deleted successfully!.", HttpStatus.OK);
     }
+
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    //rfc 7240, preferences are comma separated and may carry parameters after a semicolon
+    private static boolean respondAsync(String prefer) {
+        for (String preference : prefer.split(",")) {
+            int parameters = preference.indexOf(';');
+            String token = parameters < 0 ? preference : preference.substring(0, parameters);
+            if (RESPOND_ASYNC.equalsIgnoreCase(token.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //the version names the employee, not the bytes. json, smile and gzip all carry it, so the tag is weak and caches
+    //keep one entry per Accept
+    static ResponseEntity<Employee> okWithETag(Employee employee) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        if (employee.getVersion() != null) {
+            response.eTag("W/\"" + employee.getVersion() + "\"");
+        }
+        return response.body(employee);
+    }
+
+    //null means unconditional, either no header or If-Match: *
+    static Long ifMatchVersion(String ifMatch) {
+        if (ifMatch == null || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.startsWith("W/")) {
+            eTag = eTag.substring(2);
+        }
+        try {
+            return Long.valueOf(eTag.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("the If-Match header does not match any version");
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package com.jalian.springboottesting.controller;
+
+import com.jalian.springboottesting.dto.EmployeeImportJob;
+import com.jalian.springboottesting.service.EmployeeImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/employees/imports")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class EmployeeImportController {
+
+    private final EmployeeImportService employeeImportService;
+
+    @Autowired
+    public EmployeeImportController(EmployeeImportService employeeImportService) {
+        this.employeeImportService = employeeImportService;
+    }
+
+    //the raw body stream, never buffered, each chunk is committed before the next one is read
+    @PostMapping(consumes = "application/x-ndjson")
+    public ResponseEntity<EmployeeImportJob> importNdjson(InputStream body) {
+        return created(employeeImportService.importNdjson(body));
+    }
+
+    @PostMapping(consumes = "text/csv")
+    public ResponseEntity<EmployeeImportJob> importCsv(InputStream body) {
+        return created(employeeImportService.importCsv(body));
+    }
+
+    @GetMapping
+    public List<EmployeeImportJob> findAll() {
+        return employeeImportService.findJobs();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<EmployeeImportJob> findById(@PathVariable long id) {
+        return employeeImportService.findJob(id).map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static ResponseEntity<EmployeeImportJob> created(EmployeeImportJob job) {
+        return ResponseEntity.created(URI.create("/api/employees/imports/" + job.getId())).body(job);
+    }
+}
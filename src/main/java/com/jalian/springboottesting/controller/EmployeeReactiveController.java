@@ -0,0 +1,176 @@
+package com.jalian.springboottesting.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.dto.EmployeeLookup;
+import com.jalian.springboottesting.dto.EmployeePage;
+import com.jalian.springboottesting.exception.PreconditionFailedException;
+import com.jalian.springboottesting.exception.ResourceNotFoundException;
+import com.jalian.springboottesting.exception.UnsupportedEndpointException;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeReactiveService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+//the EmployeeController contract on webflux, nothing here blocks an event loop thread. it serves the reads and the
+//single employee writes, batch writes, search, imports and the change feed answer 501
+@RestController
+@RequestMapping("/api/employees")
+@Profile("reactive")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class EmployeeReactiveController {
+
+    private final EmployeeReactiveService employeeService;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public EmployeeReactiveController(EmployeeReactiveService employeeService, ObjectMapper objectMapper) {
+        this.employeeService = employeeService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Employee> createEmployee(@RequestBody Employee employee) {
+        return employeeService.save(employee);
+    }
+
+    //spring 5.3 collects a Flux into one list before it writes a json array, so both formats are written here
+    //element by element, as the database produces them and no faster than the client reads
+    @GetMapping
+    public ResponseEntity<Flux<DataBuffer>> findAll(@RequestHeader HttpHeaders headers, ServerHttpResponse response) {
+        if (headers.getAccept().stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype)) {
+            return ndjson(response.bufferFactory(), employeeService.findAll());
+        }
+        return jsonArray(response.bufferFactory(), employeeService.findAll());
+    }
+
+    @GetMapping(params = {"fields", "!limit"})
+    public ResponseEntity<Flux<DataBuffer>> findAll(@RequestParam List<String> fields, ServerHttpResponse response) {
+        return jsonArray(response.bufferFactory(), employeeService.findAll(fields));
+    }
+
+    @GetMapping(params = {"ids", "!fields", "!limit"})
+    public Mono<EmployeeLookup> findAllById(@RequestParam List<Long> ids) {
+        return employeeService.findAllById(ids);
+    }
+
+    @PostMapping("/lookup")
+    public Mono<EmployeeLookup> lookup(@RequestBody List<Long> ids) {
+        return employeeService.findAllById(ids);
+    }
+
+    @GetMapping(params = "limit")
+    public Mono<EmployeePage> findPage(@RequestParam(defaultValue = "0") long after, @RequestParam int limit) {
+        return employeeService.findPage(after, limit);
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<Flux<DataBuffer>> stream(ServerHttpResponse response) {
+        return jsonArray(response.bufferFactory(), employeeService.findAll());
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<Flux<DataBuffer>> exportNdjson(ServerHttpResponse response) {
+        return ndjson(response.bufferFactory(), employeeService.findAll());
+    }
+
+    @GetMapping(value = "/export", produces = "text/csv")
+    public ResponseEntity<Flux<DataBuffer>> exportCsv(ServerHttpResponse response) {
+        DataBufferFactory buffers = response.bufferFactory();
+        Flux<DataBuffer> rows = employeeService.findAll()
+                .map(employee -> text(buffers, employee.getId() + "," + EmployeeController.csv(employee.getFirstName()) + ","
+                        + EmployeeController.csv(employee.getLastName()) + "," + EmployeeController.csv(employee.getEmail())
+                        + "," + employee.getVersion() + "\n"));
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("text/csv"))
+                .body(Flux.concat(Mono.fromSupplier(() -> text(buffers, "id,firstName,lastName,email,version\n")), rows));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Employee>> findById(@PathVariable Long id) {
+        return employeeService.findById(id).map(EmployeeController :: okWithETag)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<Employee>> update(@PathVariable Long id, @RequestBody Employee employee,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        employee.setId(id);
+        return Mono.defer(() -> {
+                    employee.setVersion(EmployeeController.ifMatchVersion(ifMatch));
+                    return employeeService.update(employee);
+                })
+                .map(EmployeeController :: okWithETag)
+                .onErrorResume(ResourceNotFoundException.class, e -> Mono.just(ResponseEntity.notFound().build()))
+                .onErrorResume(PreconditionFailedException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build()));
+    }
+
+    @DeleteMapping("{id}")
+    public Mono<ResponseEntity<String>> deleteEmployee(@PathVariable("id") long employeeId,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return Mono.defer(() -> {
+                    Long version = EmployeeController.ifMatchVersion(ifMatch);
+                    return version == null ? employeeService.delete(employeeId) : employeeService.delete(employeeId, version);
+                })
+                .thenReturn(new ResponseEntity<String>("Employee deleted successfully!.", HttpStatus.OK))
+                .onErrorResume(ResourceNotFoundException.class, e -> Mono.just(ResponseEntity.notFound().build()))
+                .onErrorResume(PreconditionFailedException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build()));
+    }
+
+    //mapped so they fail clearly instead of falling through to findAll or /{id}
+    @RequestMapping({"/batch", "/search", "/writes/{id}", "/changes", "/imports", "/imports/**"})
+    public Mono<Void> servletOnly(ServerHttpRequest request) {
+        return Mono.error(new UnsupportedEndpointException(
+                request.getMethodValue() + " " + request.getPath() + " is only served by the servlet stack"));
+    }
+
+    //the opening bracket goes out with the first element, an error before it still gets its own status
+    private ResponseEntity<Flux<DataBuffer>> jsonArray(DataBufferFactory buffers, Flux<?> values) {
+        Flux<DataBuffer> elements = values.index()
+                .map(element -> write(buffers, element.getT1() == 0 ? "[" : ",", element.getT2(), ""))
+                .switchIfEmpty(Mono.fromSupplier(() -> buffers.wrap(new byte[]{'['})));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(Flux.concat(elements, Mono.fromSupplier(() -> buffers.wrap(new byte[]{']'}))));
+    }
+
+    private ResponseEntity<Flux<DataBuffer>> ndjson(DataBufferFactory buffers, Flux<?> values) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(values.map(value -> write(buffers, "", value, "\n")));
+    }
+
+    private static DataBuffer text(DataBufferFactory buffers, String text) {
+        return buffers.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private DataBuffer write(DataBufferFactory buffers, String prefix, Object value, String suffix) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffers.allocateBuffer(prefix.length() + json.length + suffix.length())
+                .write(prefix, StandardCharsets.UTF_8)
+                .write(json)
+                .write(suffix, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,33 @@
+package com.jalian.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class EmployeeBatchResult {
+
+    private int index;
+
+    private Status status;
+
+    private Long id;
+
+    private String message;
+
+    public enum Status {
+        CREATED, DUPLICATE, INVALID
+    }
+
+    public static EmployeeBatchResult created(int index, Long id) {
+        return new EmployeeBatchResult(index, Status.CREATED, id, null);
+    }
+
+    public static EmployeeBatchResult duplicate(int index) {
+        return new EmployeeBatchResult(index, Status.DUPLICATE, null, "the employee has already exists!!!");
+    }
+
+    public static EmployeeBatchResult invalid(int index, String message) {
+        return new EmployeeBatchResult(index, Status.INVALID, null, message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.jalian.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class EmployeeBulkResult {
+
+    //distinct ids in the request
+    private int requested;
+
+    //employees updated or deleted, ids without an employee are not counted
+    private int affected;
+}
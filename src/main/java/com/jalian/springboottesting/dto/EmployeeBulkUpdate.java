@@ -0,0 +1,22 @@
+package com.jalian.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+//the same names for every listed employee, a null name stays as it is. emails are unique and never bulk updated
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmployeeBulkUpdate {
+
+    private List<Long> ids;
+
+    private String firstName;
+
+    private String lastName;
+}
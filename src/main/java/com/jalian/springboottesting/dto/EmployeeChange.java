@@ -0,0 +1,30 @@
+package com.jalian.springboottesting.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.jalian.springboottesting.event.EmployeeChangedEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+@AllArgsConstructor
+public class EmployeeChange {
+
+    private final long position;
+
+    private final EmployeeChangedEvent.Type type;
+
+    private final Long id;
+
+    //stored as json in the outbox and written as is, null for DELETED
+    @JsonRawValue
+    private final String employee;
+
+    private final Instant at;
+
+    //only for the invalidator, subscribers have no use for it
+    @JsonIgnore
+    private final String nodeId;
+}
@@ -0,0 +1,45 @@
+package com.jalian.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+//a point in time view of an import, the running job keeps counting
+@Getter
+@AllArgsConstructor
+public class EmployeeImportJob {
+
+    private long id;
+
+    private Status status;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    private long rows;
+
+    private long created;
+
+    private long rejected;
+
+    //only the first employee.bulk-import.max-reported-rejections rows
+    private List<Rejection> rejections;
+
+    private String message;
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Rejection {
+
+        private long line;
+
+        private String message;
+    }
+}
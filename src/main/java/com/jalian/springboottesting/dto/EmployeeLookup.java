@@ -0,0 +1,18 @@
+package com.jalian.springboottesting.dto;
+
+import com.jalian.springboottesting.model.Employee;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class EmployeeLookup {
+
+    //in the order the ids were asked for, each id once
+    private List<Employee> employees;
+
+    //requested ids without an employee
+    private List<Long> missing;
+}
@@ -0,0 +1,17 @@
+package com.jalian.springboottesting.dto;
+
+import com.jalian.springboottesting.model.Employee;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class EmployeePage {
+
+    private List<Employee> employees;
+
+    //pass it as ?after= to fetch the next page, null on the last page
+    private Long nextAfter;
+}
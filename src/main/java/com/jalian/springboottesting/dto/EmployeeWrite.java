@@ -0,0 +1,29 @@
+package com.jalian.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+//a point in time view of a create accepted with Prefer: respond-async
+@Getter
+@AllArgsConstructor
+public class EmployeeWrite {
+
+    private long id;
+
+    private Status status;
+
+    private Instant acceptedAt;
+
+    private Instant committedAt;
+
+    //the created employee, once committed
+    private Long employeeId;
+
+    private String message;
+
+    public enum Status {
+        PENDING, CREATED, DUPLICATE, INVALID, FAILED
+    }
+}
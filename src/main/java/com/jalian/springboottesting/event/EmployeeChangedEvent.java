@@ -0,0 +1,34 @@
+package com.jalian.springboottesting.event;
+
+import com.jalian.springboottesting.model.Employee;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//published inside the writing transaction, listeners pick the phase they need
+@Getter
+@AllArgsConstructor
+public class EmployeeChangedEvent {
+
+    private final Type type;
+
+    private final Long id;
+
+    //null for DELETED
+    private final Employee employee;
+
+    public static EmployeeChangedEvent saved(Employee employee) {
+        return new EmployeeChangedEvent(Type.SAVED, employee.getId(), employee);
+    }
+
+    public static EmployeeChangedEvent updated(Employee employee) {
+        return new EmployeeChangedEvent(Type.UPDATED, employee.getId(), employee);
+    }
+
+    public static EmployeeChangedEvent deleted(Long id) {
+        return new EmployeeChangedEvent(Type.DELETED, id, null);
+    }
+
+    public enum Type {
+        SAVED, UPDATED, DELETED
+    }
+}
@@ -0,0 +1,16 @@
+package com.jalian.springboottesting.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidFieldsException extends RuntimeException {
+
+    public InvalidFieldsException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.jalian.springboottesting.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.jalian.springboottesting.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+public class UnsupportedEndpointException extends RuntimeException {
+
+    public UnsupportedEndpointException(String message) {
+        super(message);
+    }
+}
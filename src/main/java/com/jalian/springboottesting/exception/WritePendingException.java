@@ -0,0 +1,16 @@
+package com.jalian.springboottesting.exception;
+
+import com.jalian.springboottesting.dto.EmployeeWrite;
+import lombok.Getter;
+
+//the create is still queued after employee.write-behind.wait-timeout, the caller gets its status url instead
+@Getter
+public class WritePendingException extends RuntimeException {
+
+    private final EmployeeWrite write;
+
+    public WritePendingException(EmployeeWrite write) {
+        super("the employee is not written yet");
+        this.write = write;
+    }
+}
@@ -0,0 +1,134 @@
+package com.jalian.springboottesting.lookup;
+
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.config.EmployeeRoutingDataSource;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.repository.EmployeeRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//concurrent findById misses share one where id in (...) query. the first caller of a batch leads it, waits up to
+//the coalesce window for others to join and runs the query on its own thread, the rest wait for their result.
+//a caller with nobody else in flight never waits. the results are cached, so every query goes to the primary
+public class EmployeeBatchLoader {
+
+    private final EmployeeRepository employeeRepository;
+
+    private final EmployeeProperties.Lookup settings;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    //guarded by this
+    private Batch pending;
+
+    public EmployeeBatchLoader(EmployeeRepository employeeRepository, EmployeeProperties.Lookup settings) {
+        this.employeeRepository = employeeRepository;
+        this.settings = settings;
+    }
+
+    public Optional<Employee> load(Long id) {
+        long window = settings.getCoalesceWindow().toNanos();
+        if (window <= 0) {
+            return EmployeeRoutingDataSource.onPrimary(() -> employeeRepository.findById(id));
+        }
+        inFlight.incrementAndGet();
+        try {
+            Batch batch;
+            boolean leader;
+            CompletableFuture<Optional<Employee>> result = new CompletableFuture<>();
+            synchronized (this) {
+                leader = pending == null;
+                if (leader) {
+                    pending = new Batch();
+                }
+                batch = pending;
+                batch.add(id, result);
+                if (batch.size >= settings.getMaxBatchSize() || batch.size >= inFlight.get()) {
+                    notifyAll();
+                }
+            }
+            if (leader) {
+                close(batch, window);
+                EmployeeRoutingDataSource.onPrimary(() -> run(batch));
+            }
+            return join(result);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private synchronized void close(Batch batch, long window) {
+        long deadline = System.nanoTime() + window;
+        long remaining = window;
+        try {
+            while (remaining > 0 && batch.size < settings.getMaxBatchSize() && batch.size < inFlight.get()) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pending = null;
+        }
+    }
+
+    private void run(Batch batch) {
+        try {
+            List<Long> ids = new ArrayList<>(batch.callers.keySet());
+            if (ids.size() == 1) {
+                batch.complete(ids.get(0), employeeRepository.findById(ids.get(0)).orElse(null));
+                return;
+            }
+            List<Employee> employees = employeeRepository.findAllByIdInOrder(ids, settings.getChunkSize());
+            for (int index = 0; index < ids.size(); index++) {
+                batch.complete(ids.get(index), employees.get(index));
+            }
+        } catch (RuntimeException | Error e) {
+            batch.callers.values().forEach(futures -> futures.forEach(future -> future.completeExceptionally(e)));
+            throw e;
+        }
+    }
+
+    private static Optional<Employee> join(CompletableFuture<Optional<Employee>> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Batch {
+
+        private final Map<Long, List<CompletableFuture<Optional<Employee>>>> callers = new LinkedHashMap<>();
+
+        private int size;
+
+        private void add(Long id, CompletableFuture<Optional<Employee>> result) {
+            callers.computeIfAbsent(id, key -> new ArrayList<>(1)).add(result);
+            size++;
+        }
+
+        //callers asking for the same id each get an instance of their own
+        private void complete(Long id, Employee employee) {
+            List<CompletableFuture<Optional<Employee>>> futures = callers.get(id);
+            for (int index = 0; index < futures.size(); index++) {
+                futures.get(index).complete(Optional.ofNullable(
+                        employee == null || index == 0 ? employee : employee.toBuilder().build()));
+            }
+        }
+    }
+}
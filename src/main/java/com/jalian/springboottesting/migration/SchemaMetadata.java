@@ -0,0 +1,64 @@
+package com.jalian.springboottesting.migration;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//what the schema has, asked through jdbc metadata so it works the same on mysql and h2
+public final class SchemaMetadata {
+
+    private SchemaMetadata() {
+    }
+
+    public static boolean hasTable(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(), identifier(metaData, table), new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    public static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(), identifier(metaData, table), identifier(metaData, column))) {
+            return columns.next();
+        }
+    }
+
+    public static boolean hasIndex(Connection connection, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), identifier(metaData, table), false, false)) {
+            while (indexes.next()) {
+                if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    //by columns rather than by name, h2 names the index behind a constraint on its own
+    public static boolean hasUniqueIndexOn(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        Map<String, List<String>> columnsByIndex = new HashMap<>();
+        try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), identifier(metaData, table), true, false)) {
+            while (indexes.next()) {
+                String name = indexes.getString("INDEX_NAME");
+                String indexed = indexes.getString("COLUMN_NAME");
+                if (name != null && indexed != null) {
+                    columnsByIndex.computeIfAbsent(name, key -> new ArrayList<>()).add(indexed);
+                }
+            }
+        }
+        return columnsByIndex.values().stream().anyMatch(columns -> columns.size() == 1 && column.equalsIgnoreCase(columns.get(0)));
+    }
+
+    //h2 keeps unquoted names upper case, mysql as they were written
+    private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+        return metaData.storesUpperCaseIdentifiers() ? name.toUpperCase() : name;
+    }
+}
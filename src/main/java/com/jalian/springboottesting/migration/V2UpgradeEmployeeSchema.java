@@ -0,0 +1,91 @@
+package com.jalian.springboottesting.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static com.jalian.springboottesting.migration.SchemaMetadata.hasColumn;
+import static com.jalian.springboottesting.migration.SchemaMetadata.hasIndex;
+import static com.jalian.springboottesting.migration.SchemaMetadata.hasTable;
+
+//baseline-on-migrate marks V1 as applied on a database that was created by ddl-auto before the series, so V1 never
+//runs there. this adds whatever V1 would have created and is still missing, on a fresh database it finds nothing to do
+@Slf4j
+@Component
+public class V2UpgradeEmployeeSchema implements JavaMigration {
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("2");
+    }
+
+    @Override
+    public String getDescription() {
+        return "upgrade employee schema";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean isUndo() {
+        return false;
+    }
+
+    @Override
+    public boolean isBaselineMigration() {
+        return false;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        boolean mysql = "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        try (Statement statement = connection.createStatement()) {
+            if (!hasColumn(connection, "employee", "version")) {
+                execute(statement, "alter table employee add column version bigint default 0 not null");
+            }
+            if (!hasIndex(connection, "employee", "idx_employee_name")) {
+                execute(statement, "create index idx_employee_name on employee (first_name, last_name)");
+            }
+            createSequence(connection, statement, mysql, "employee_seq");
+            if (!hasTable(connection, "employee_outbox")) {
+                execute(statement, "create table employee_outbox (id bigint not null, created_at " + (mysql ? "datetime(6)" : "timestamp")
+                        + " not null, employee_id bigint not null, payload varchar(4000), relay_position bigint, type varchar(16) not null, primary key (id))"
+                        + (mysql ? " engine=InnoDB" : ""));
+                execute(statement, "alter table employee_outbox add constraint uk_employee_outbox_position unique (relay_position)");
+            }
+            createSequence(connection, statement, mysql, "employee_outbox_seq");
+        }
+    }
+
+    //mysql has no sequences, hibernate keeps next_val in a table. the seeder moves employee_seq past max(id) later on
+    private void createSequence(Connection connection, Statement statement, boolean mysql, String name) throws SQLException {
+        if (mysql) {
+            if (!hasTable(connection, name)) {
+                execute(statement, "create table " + name + " (next_val bigint) engine=InnoDB");
+                execute(statement, "insert into " + name + " values (1)");
+            }
+            return;
+        }
+        execute(statement, "create sequence if not exists " + name + " start with 1 increment by 50");
+    }
+
+    private void execute(Statement statement, String sql) throws SQLException {
+        log.info("upgrading employee schema: {}", sql);
+        statement.execute(sql);
+    }
+}
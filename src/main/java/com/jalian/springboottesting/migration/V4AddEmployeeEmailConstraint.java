@@ -0,0 +1,84 @@
+package com.jalian.springboottesting.migration;
+
+import com.jalian.springboottesting.model.Employee;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.jalian.springboottesting.migration.SchemaMetadata.hasUniqueIndexOn;
+
+//a schema from before the series may hold the same email twice, ddl-auto then failed to add the constraint and
+//only logged it. duplicates are reported and the migration fails, which of them to keep is not ours to decide
+@Slf4j
+@Component
+public class V4AddEmployeeEmailConstraint implements JavaMigration {
+
+    //emails named in the failure, the rest are counted
+    private static final int REPORTED_DUPLICATES = 20;
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("4");
+    }
+
+    @Override
+    public String getDescription() {
+        return "add employee email constraint";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean isUndo() {
+        return false;
+    }
+
+    @Override
+    public boolean isBaselineMigration() {
+        return false;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        if (hasUniqueIndexOn(connection, "employee", "email")) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            //mysql compares emails case insensitively, so does the constraint there
+            List<String> duplicates = new ArrayList<>();
+            int count = 0;
+            try (ResultSet rows = statement.executeQuery(
+                    "select lower(email), count(*) from employee group by lower(email) having count(*) > 1 order by lower(email)")) {
+                while (rows.next()) {
+                    if (count++ < REPORTED_DUPLICATES) {
+                        duplicates.add(rows.getString(1) + " (" + rows.getLong(2) + " employees)");
+                    }
+                }
+            }
+            if (count > 0) {
+                throw new IllegalStateException(count + " emails belong to more than one employee, resolve them before "
+                        + Employee.EMAIL_CONSTRAINT + " can be added: " + String.join(", ", duplicates)
+                        + (count > REPORTED_DUPLICATES ? " and " + (count - REPORTED_DUPLICATES) + " more" : ""));
+            }
+            log.info("adding {} to employee", Employee.EMAIL_CONSTRAINT);
+            statement.execute("alter table employee add constraint " + Employee.EMAIL_CONSTRAINT + " unique (email)");
+        }
+    }
+}
@@ -1,20 +1,34 @@
 package com.jalian.springboottesting.model;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
-@Table
+@Table(uniqueConstraints = @UniqueConstraint(name = Employee.EMAIL_CONSTRAINT, columnNames = "email"),
+        indexes = @Index(name = "idx_employee_name", columnList = "first_name, last_name"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Employee.CACHE_REGION)
 @Setter
 @Getter
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 public class Employee {
 
+    public static final String EMAIL_CONSTRAINT = "uk_employee_email";
+
+    public static final String CACHE_REGION = "employee";
+
+    //cached queries over employee only, so a change from another node does not evict the results of other queries
+    public static final String QUERY_CACHE_REGION = "employee-query";
+
+    //pooled sequence instead of IDENTITY so hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_seq")
+    @SequenceGenerator(name = "employee_seq", sequenceName = "employee_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "first_name", nullable = false)
@@ -25,4 +39,8 @@ public class Employee {
 
     @Column(nullable = false)
     private String email;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
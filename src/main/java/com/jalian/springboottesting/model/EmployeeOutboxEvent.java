@@ -0,0 +1,46 @@
+package com.jalian.springboottesting.model;
+
+import com.jalian.springboottesting.event.EmployeeChangedEvent;
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "employee_outbox",
+        indexes = @Index(name = "uk_employee_outbox_position", columnList = "relay_position", unique = true))
+@Setter
+@Getter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_outbox_seq")
+    @SequenceGenerator(name = "employee_outbox_seq", sequenceName = "employee_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    //the offset consumers resume from, null until the relay numbers the row. ids are handed out before
+    //commit and can become visible out of order, positions are assigned after commit and never do
+    @Column(name = "relay_position")
+    private Long position;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private EmployeeChangedEvent.Type type;
+
+    @Column(name = "employee_id", nullable = false)
+    private Long employeeId;
+
+    //the employee as json, null for DELETED
+    @Column(length = 4000)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    //employee.outbox.node-id of the node that wrote the change
+    @Column(name = "node_id", length = 64)
+    private String nodeId;
+}
@@ -0,0 +1,20 @@
+package com.jalian.springboottesting.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+//a single row every relay locks before it numbers outbox rows, so relays on different nodes take turns
+@Entity
+@Table(name = "employee_outbox_relay_lock")
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeOutboxRelayLock {
+
+    public static final long ID = 1L;
+
+    @Id
+    private Long id;
+}
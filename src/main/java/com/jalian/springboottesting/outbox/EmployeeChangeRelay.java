@@ -0,0 +1,153 @@
+package com.jalian.springboottesting.outbox;
+
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.dto.EmployeeChange;
+import com.jalian.springboottesting.exception.ChangesExpiredException;
+import com.jalian.springboottesting.service.EmployeeChangeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//numbers committed outbox rows in batches and pushes them to the server sent event subscribers, subscribers
+//that are up to date share the freshly numbered batch, the others catch up from the outbox table. sends block on
+//slow clients, so they run on their own threads and the scheduler only hands them out
+@Slf4j
+@Component
+public class EmployeeChangeRelay {
+
+    private final EmployeeChangeService employeeChangeService;
+
+    private final EmployeeProperties.Outbox settings;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    //a subscriber has at most one delivery queued or running, so the queue only fills with that many subscribers
+    private final ThreadPoolExecutor sender;
+
+    @Autowired
+    public EmployeeChangeRelay(EmployeeChangeService employeeChangeService, EmployeeProperties employeeProperties) {
+        this.employeeChangeService = employeeChangeService;
+        this.settings = employeeProperties.getOutbox();
+        this.sender = new ThreadPoolExecutor(settings.getSenderThreads(), settings.getSenderThreads(), 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(settings.getSenderQueueCapacity()), new CustomizableThreadFactory("employee-change-sender-"));
+        this.sender.allowCoreThreadTimeOut(true);
+    }
+
+    //changes after the given position, or only new ones without a position
+    public SseEmitter subscribe(Long since) {
+        long position = since == null ? employeeChangeService.lastPosition() : since;
+        if (position < employeeChangeService.firstPosition() - 1) {
+            throw new ChangesExpiredException("changes after " + position + " are no longer kept, reload the employees");
+        }
+        SseEmitter emitter = new SseEmitter(settings.getSubscriptionTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter, position);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${employee.outbox.relay-interval-ms:200}")
+    public synchronized void relay() {
+        List<EmployeeChange> relayed = employeeChangeService.relay(settings.getBatchSize());
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        //other instances number rows too, so the head comes from the table and not from this relay
+        long last = relayed.isEmpty() ? employeeChangeService.lastPosition() : relayed.get(relayed.size() - 1).getPosition();
+        long first = relayed.isEmpty() ? last + 1 : relayed.get(0).getPosition();
+        for (Subscriber subscriber : subscribers) {
+            //still busy with an earlier round, it catches up from the table once it is done
+            if (!subscriber.sending.compareAndSet(false, true)) {
+                continue;
+            }
+            try {
+                sender.execute(() -> deliver(subscriber, relayed, first, last));
+            } catch (RejectedExecutionException e) {
+                subscriber.sending.set(false);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${employee.outbox.purge-interval-ms:60000}")
+    public void purge() {
+        int purged = employeeChangeService.purgeRelayedBefore(Instant.now().minus(settings.getRetention()));
+        if (purged > 0) {
+            log.info("purged {} relayed employee changes", purged);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    int subscribers() {
+        return subscribers.size();
+    }
+
+    private void deliver(Subscriber subscriber, List<EmployeeChange> relayed, long first, long last) {
+        try {
+            if (subscriber.position >= first - 1) {
+                subscriber.send(relayed);
+            } else {
+                catchUp(subscriber, last);
+            }
+        } catch (IOException | IllegalStateException e) {
+            //the client went away, the emitter callbacks remove it
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    private void catchUp(Subscriber subscriber, long last) throws IOException {
+        for (int batch = 0; batch < settings.getMaxCatchUpBatches() && subscriber.position < last; batch++) {
+            List<EmployeeChange> changes = employeeChangeService.findSince(subscriber.position, settings.getBatchSize());
+            if (changes.isEmpty()) {
+                return;
+            }
+            subscriber.send(changes);
+        }
+    }
+
+    private static class Subscriber {
+
+        private final SseEmitter emitter;
+
+        //also hands position from one sender thread to the next
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private long position;
+
+        private Subscriber(SseEmitter emitter, long position) {
+            this.emitter = emitter;
+            this.position = position;
+        }
+
+        private void send(List<EmployeeChange> changes) throws IOException {
+            for (EmployeeChange change : changes) {
+                if (change.getPosition() > position) {
+                    emitter.send(SseEmitter.event().id(Long.toString(change.getPosition())).data(change));
+                    position = change.getPosition();
+                }
+            }
+        }
+    }
+}
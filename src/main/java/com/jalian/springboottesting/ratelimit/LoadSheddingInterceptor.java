@@ -0,0 +1,132 @@
+package com.jalian.springboottesting.ratelimit;
+
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+//sheds requests with 503 while the jdbc pools have too many waiters or more requests are in flight than the
+//adaptive limit, which shrinks when requests get slower than the threshold and grows back while they are fast
+public class LoadSheddingInterceptor implements AsyncHandlerInterceptor, MeterBinder {
+
+    private static final String STARTED = LoadSheddingInterceptor.class.getName() + ".started";
+
+    private final List<HikariDataSource> pools;
+
+    private final EmployeeProperties.LoadShedding settings;
+
+    private final long latencyThresholdNanos;
+
+    private final String retryAfter;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger limit;
+
+    private final LongAdder rejected = new LongAdder();
+
+    public LoadSheddingInterceptor(List<HikariDataSource> pools, EmployeeProperties.LoadShedding settings) {
+        this.pools = pools;
+        this.settings = settings;
+        this.latencyThresholdNanos = settings.getLatencyThreshold().toNanos();
+        this.retryAfter = Long.toString(Math.max(1, settings.getRetryAfter().getSeconds()));
+        this.limit = new AtomicInteger(settings.getMaxConcurrency());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        //async dispatches of a request that was already admitted
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        if (poolWaiters() > settings.getMaxPoolWaiters()) {
+            return reject(response);
+        }
+        if (inFlight.incrementAndGet() > limit.get()) {
+            inFlight.decrementAndGet();
+            return reject(response);
+        }
+        request.setAttribute(STARTED, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object started = request.getAttribute(STARTED);
+        if (started == null) {
+            return;
+        }
+        request.removeAttribute(STARTED);
+        inFlight.decrementAndGet();
+        adapt(System.nanoTime() - (Long) started);
+    }
+
+    //event subscriptions stay open by design and hold no thread while idle, so they give their slot back here and do
+    //not count as slow requests. callables and streams keep running on an executor and keep their slot
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (isSubscription(handler) && request.getAttribute(STARTED) != null) {
+            request.removeAttribute(STARTED);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("employee.requests.concurrency.limit", limit, AtomicInteger::get).register(registry);
+        Gauge.builder("employee.requests.in.flight", inFlight, AtomicInteger::get).register(registry);
+        FunctionCounter.builder("employee.requests.rejected", rejected, LongAdder::sum)
+                .tag("reason", "overload")
+                .register(registry);
+    }
+
+    int limit() {
+        return limit.get();
+    }
+
+    private void adapt(long latencyNanos) {
+        if (latencyNanos > latencyThresholdNanos) {
+            limit.updateAndGet(current -> Math.max(settings.getMinConcurrency(), current * 9 / 10));
+        } else if (limit.get() < settings.getMaxConcurrency()) {
+            limit.updateAndGet(current -> Math.min(settings.getMaxConcurrency(), current + 1));
+        }
+    }
+
+    private static boolean isSubscription(Object handler) {
+        return handler instanceof HandlerMethod
+                && SseEmitter.class.isAssignableFrom(((HandlerMethod) handler).getReturnType().getParameterType());
+    }
+
+    private int poolWaiters() {
+        int waiters = 0;
+        for (HikariDataSource pool : pools) {
+            HikariPoolMXBean poolBean = pool.getHikariPoolMXBean();
+            if (poolBean != null) {
+                waiters += poolBean.getThreadsAwaitingConnection();
+            }
+        }
+        return waiters;
+    }
+
+    private boolean reject(HttpServletResponse response) {
+        rejected.increment();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        return false;
+    }
+}
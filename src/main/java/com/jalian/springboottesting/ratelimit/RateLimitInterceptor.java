@@ -0,0 +1,116 @@
+package com.jalian.springboottesting.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jalian.springboottesting.config.EmployeeProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+//one token bucket per client and endpoint, a client over its limit gets 429 with Retry-After. an endpoint is a
+//controller method named Controller#method, its overloads share one limit and one set of buckets
+public class RateLimitInterceptor implements HandlerInterceptor, MeterBinder {
+
+    private final EmployeeProperties.RateLimit settings;
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    //resolved once per handler method, so a request does not build the endpoint name
+    private final ConcurrentMap<Method, Endpoint> handlers = new ConcurrentHashMap<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    //the keys each remote address has used
+    private final Cache<String, Set<String>> keysByAddress;
+
+    public RateLimitInterceptor(EmployeeProperties.RateLimit settings) {
+        this.settings = settings;
+        this.keysByAddress = Caffeine.newBuilder().maximumSize(settings.getMaxClients()).build();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        //async dispatches were already let through on the first one
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        Endpoint endpoint = endpointOf((HandlerMethod) handler);
+        String client = clientOf(request);
+        long wait = endpoint.buckets.get(client, key -> endpoint.newBucket()).tryAcquire(System.nanoTime());
+        if (wait == 0) {
+            return true;
+        }
+        rejected.increment();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString((wait + 999_999_999L) / 1_000_000_000L));
+        return false;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("employee.requests.rejected", rejected, LongAdder::sum)
+                .tag("reason", "rate-limit")
+                .register(registry);
+    }
+
+    //the key is not checked against anything, so one address gets buckets of its own for at most
+    //max-keys-per-address keys. its other keys share the bucket of the address, a new key per request gains nothing
+    private String clientOf(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        String key = request.getHeader(settings.getClientHeader());
+        if (key == null) {
+            return address;
+        }
+        Set<String> keys = keysByAddress.get(address, ignored -> ConcurrentHashMap.newKeySet());
+        if (!keys.contains(key)) {
+            synchronized (keys) {
+                if (keys.size() >= settings.getMaxKeysPerAddress()) {
+                    return address;
+                }
+                keys.add(key);
+            }
+        }
+        //prefixed, a key that looks like someone's address must not take over their bucket
+        return "key:" + key;
+    }
+
+    private Endpoint endpointOf(HandlerMethod handler) {
+        //get first, computeIfAbsent locks the bin even on a hit in java 8
+        Endpoint endpoint = handlers.get(handler.getMethod());
+        if (endpoint != null) {
+            return endpoint;
+        }
+        String name = handler.getBeanType().getSimpleName() + "#" + handler.getMethod().getName();
+        return handlers.computeIfAbsent(handler.getMethod(), method -> endpoints.computeIfAbsent(name, key ->
+                new Endpoint(settings.getEndpoints().getOrDefault(key, settings.getDefaults()), settings.getMaxClients())));
+    }
+
+    private static class Endpoint {
+
+        private final EmployeeProperties.Limit limit;
+
+        private final Cache<String, TokenBucket> buckets;
+
+        private Endpoint(EmployeeProperties.Limit limit, int maxClients) {
+            this.limit = limit;
+            this.buckets = Caffeine.newBuilder().maximumSize(maxClients).build();
+        }
+
+        private TokenBucket newBucket() {
+            return new TokenBucket(limit.getCapacity(), limit.getPermitsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.jalian.springboottesting.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//a token bucket kept as the time at which it will be full again (gcra), so taking a token is one cas
+public class TokenBucket {
+
+    private final long nanosPerPermit;
+
+    private final long burstNanos;
+
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+    public TokenBucket(int capacity, double permitsPerSecond) {
+        this.nanosPerPermit = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.burstNanos = nanosPerPermit * capacity;
+    }
+
+    //0 when a token was taken, otherwise the nanos until the next one is available
+    public long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + nanosPerPermit;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
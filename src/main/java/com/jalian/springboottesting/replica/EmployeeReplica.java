@@ -0,0 +1,131 @@
+package com.jalian.springboottesting.replica;
+
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.config.EmployeeRoutingDataSource;
+import com.jalian.springboottesting.event.EmployeeChangedEvent;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.repository.EmployeeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+//employee.replica.enabled serves findById and findByEmail from EmployeeReplicaStore. it is filled once the
+//application is ready and follows this node's writes after they commit. changes from other nodes come through
+//EmployeeCacheInvalidator and are read back from the primary. reads never fill it, a reader may hold a version
+//older than the last commit. a miss is never an answer, callers fall back to the cache and the database
+//transactions come from a template, @Transactional would proxy the bean and every read would box its id into the
+//proxy's argument array
+@Component
+public class EmployeeReplica {
+
+    private final EmployeeRepository employeeRepository;
+
+    private final TransactionTemplate readOnly;
+
+    //null while disabled
+    private final EmployeeReplicaStore store;
+
+    private final ThreadLocal<EmployeeReplicaStore.Row> rows = ThreadLocal.withInitial(EmployeeReplicaStore.Row::new);
+
+    private volatile boolean loaded;
+
+    @Autowired
+    public EmployeeReplica(EmployeeRepository employeeRepository, EmployeeProperties employeeProperties,
+                           PlatformTransactionManager transactionManager) {
+        this.employeeRepository = employeeRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        EmployeeProperties.Replica settings = employeeProperties.getReplica();
+        this.store = settings.isEnabled() ? new EmployeeReplicaStore(settings.getExpectedSize()) : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (store == null) {
+            return;
+        }
+        loaded = false;
+        store.clear();
+        readOnly.executeWithoutResult(status ->
+                EmployeeRoutingDataSource.onPrimary(() -> employeeRepository.forEachRowOrderedById(this::put)));
+        loaded = true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        if (event.getType() == EmployeeChangedEvent.Type.DELETED) {
+            remove(event.getId());
+        } else {
+            put(event.getEmployee());
+        }
+    }
+
+    //changed on another node. the primary has the committed state, the store keeps it unless it already holds a
+    //newer version from a write on this node
+    public void refresh(Collection<Long> ids) {
+        if (store == null) {
+            return;
+        }
+        //a query, not a multi load, which would take what the second level cache still has
+        List<Employee> employees = readOnly.execute(status ->
+                EmployeeRoutingDataSource.onPrimary(() -> employeeRepository.findAllById(ids)));
+        Set<Long> missing = new HashSet<>(ids);
+        for (Employee employee : employees) {
+            missing.remove(employee.getId());
+            put(employee);
+        }
+        missing.forEach(store::remove);
+    }
+
+    public Optional<Employee> get(Long id) {
+        EmployeeReplicaStore.Row row = rows.get();
+        return id != null && read(id, row) ? Optional.of(row.toEmployee()) : Optional.empty();
+    }
+
+    public Optional<Employee> getByEmail(String email) {
+        EmployeeReplicaStore.Row row = rows.get();
+        return email != null && readByEmail(email, row) ? Optional.of(row.toEmployee()) : Optional.empty();
+    }
+
+    //fills the caller's row and allocates nothing, for callers that can work with the row itself
+    public boolean read(long id, EmployeeReplicaStore.Row target) {
+        return loaded && store.read(id, target);
+    }
+
+    public boolean readByEmail(CharSequence email, EmployeeReplicaStore.Row target) {
+        return loaded && store.readByEmail(email, target);
+    }
+
+    //writes carry the version they committed, anything without one is left to the cache and the database
+    private void put(Employee employee) {
+        if (store == null) {
+            return;
+        }
+        if (employee.getVersion() == null || employee.getFirstName() == null || employee.getLastName() == null
+                || employee.getEmail() == null) {
+            store.remove(employee.getId());
+        } else {
+            store.put(employee);
+        }
+    }
+
+    public void remove(Long id) {
+        if (store != null) {
+            store.remove(id);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+}
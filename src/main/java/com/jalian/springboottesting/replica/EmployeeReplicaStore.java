@@ -0,0 +1,608 @@
+package com.jalian.springboottesting.replica;
+
+import com.jalian.springboottesting.model.Employee;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+//every employee as a fixed 40 byte row in direct memory, names and emails in an off heap string arena. ids and
+//email hashes map to rows through open addressing tables of primitives, so reads follow no object references
+//and a read into a reused Row allocates nothing. names repeat a lot and are stored once, emails are unique.
+//writers hold the write lock, readers try an optimistic read first and fall back to the read lock
+public class EmployeeReplicaStore {
+
+    private static final int ROW_BYTES = 40;
+
+    private static final int ID = 0;
+
+    private static final int VERSION = 8;
+
+    private static final int FIRST_NAME = 16;
+
+    private static final int LAST_NAME = 24;
+
+    private static final int EMAIL = 32;
+
+    //versions are never negative, this one stands for an employee saved without a version
+    private static final long NO_VERSION = -1;
+
+    private final StampedLock lock = new StampedLock();
+
+    //id -> row + 1, zero is a free slot
+    private long[] idKeys;
+
+    private int[] idRows;
+
+    //lower cased email hash -> row + 1, equal hashes sit next to each other and are told apart by the email
+    private long[] emailKeys;
+
+    private int[] emailRows;
+
+    //name hash -> string reference, so equal names share their bytes
+    private long[] nameKeys;
+
+    private long[] nameRefs;
+
+    private int names;
+
+    private ByteBuffer rows;
+
+    private int rowLimit;
+
+    private int[] freeRows;
+
+    private int freeCount;
+
+    private ByteBuffer strings;
+
+    private int stringsUsed;
+
+    //email bytes of removed or replaced rows, given back when the arena is compacted
+    private int garbage;
+
+    private int size;
+
+    public EmployeeReplicaStore(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        int slots = tableSize(capacity);
+        idKeys = new long[slots];
+        idRows = new int[slots];
+        emailKeys = new long[slots];
+        emailRows = new int[slots];
+        nameKeys = new long[slots];
+        nameRefs = new long[slots];
+        rows = ByteBuffer.allocateDirect(capacity * ROW_BYTES);
+        freeRows = new int[16];
+        //roughly an email and a share of two names per employee
+        strings = ByteBuffer.allocateDirect(capacity * 32);
+    }
+
+    public void put(Employee employee) {
+        long stamp = lock.writeLock();
+        try {
+            long id = employee.getId();
+            int row = find(id);
+            //after-commit listeners of two updates can run in either order, the newer version stays
+            if (row >= 0 && employee.getVersion() != null && rows.getLong(row * ROW_BYTES + VERSION) > employee.getVersion()) {
+                return;
+            }
+            if (row >= 0) {
+                removeEmail(row);
+                garbage += bytes(rows.getLong(row * ROW_BYTES + EMAIL));
+            } else {
+                row = allocateRow();
+                insertId(id, row);
+                size++;
+            }
+            int base = row * ROW_BYTES;
+            rows.putLong(base + ID, id);
+            rows.putLong(base + VERSION, employee.getVersion() == null ? NO_VERSION : employee.getVersion());
+            rows.putLong(base + FIRST_NAME, intern(employee.getFirstName()));
+            rows.putLong(base + LAST_NAME, intern(employee.getLastName()));
+            rows.putLong(base + EMAIL, store(employee.getEmail()));
+            insertEmail(emailHash(employee.getEmail()), row);
+            compactIfWasteful();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            int row = find(id);
+            if (row < 0) {
+                return;
+            }
+            removeEmail(row);
+            garbage += bytes(rows.getLong(row * ROW_BYTES + EMAIL));
+            deleteSlot(idKeys, idRows, slotOf(id));
+            releaseRow(row);
+            size--;
+            compactIfWasteful();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            Arrays.fill(idKeys, 0);
+            Arrays.fill(idRows, 0);
+            Arrays.fill(emailKeys, 0);
+            Arrays.fill(emailRows, 0);
+            Arrays.fill(nameKeys, 0);
+            Arrays.fill(nameRefs, 0);
+            names = 0;
+            rowLimit = 0;
+            freeCount = 0;
+            stringsUsed = 0;
+            garbage = 0;
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean read(long id, Row target) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                boolean found = readById(id, target);
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            } catch (RuntimeException e) {
+                //a writer moved things under us, the locked read below is authoritative
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return readById(id, target);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean readByEmail(CharSequence email, Row target) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                boolean found = readByEmailHash(email, target);
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            } catch (RuntimeException e) {
+                //as in read
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return readByEmailHash(email, target);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    //direct memory taken by rows and strings
+    public long offHeapBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) rows.capacity() + strings.capacity();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    //the primitive tables on the heap, array headers left out
+    public long heapBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) idKeys.length * (8 + 4) + (long) emailKeys.length * (8 + 4) + (long) nameKeys.length * (8 + 8)
+                    + freeRows.length * 4L;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean readById(long id, Row target) {
+        long[] keys = idKeys;
+        int[] values = idRows;
+        int mask = keys.length - 1;
+        for (int slot = mix(id) & mask; ; slot = (slot + 1) & mask) {
+            int row = values[slot];
+            if (row == 0) {
+                return false;
+            }
+            if (keys[slot] == id) {
+                copy(row - 1, target);
+                return true;
+            }
+        }
+    }
+
+    private boolean readByEmailHash(CharSequence email, Row target) {
+        long hash = emailHash(email);
+        long[] keys = emailKeys;
+        int[] values = emailRows;
+        int mask = keys.length - 1;
+        ByteBuffer rows = this.rows;
+        ByteBuffer strings = this.strings;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int row = values[slot];
+            if (row == 0) {
+                return false;
+            }
+            if (keys[slot] == hash && equalsIgnoreCase(strings, rows.getLong((row - 1) * ROW_BYTES + EMAIL), email)) {
+                copy(row - 1, target);
+                return true;
+            }
+        }
+    }
+
+    private void copy(int row, Row target) {
+        ByteBuffer rows = this.rows;
+        ByteBuffer strings = this.strings;
+        int base = row * ROW_BYTES;
+        target.id = rows.getLong(base + ID);
+        target.version = rows.getLong(base + VERSION);
+        decode(strings, rows.getLong(base + FIRST_NAME), target.firstName);
+        decode(strings, rows.getLong(base + LAST_NAME), target.lastName);
+        decode(strings, rows.getLong(base + EMAIL), target.email);
+    }
+
+    private int find(long id) {
+        int slot = slotOf(id);
+        return slot < 0 ? -1 : idRows[slot] - 1;
+    }
+
+    private int slotOf(long id) {
+        int mask = idKeys.length - 1;
+        for (int slot = mix(id) & mask; ; slot = (slot + 1) & mask) {
+            if (idRows[slot] == 0) {
+                return -1;
+            }
+            if (idKeys[slot] == id) {
+                return slot;
+            }
+        }
+    }
+
+    private void insertId(long id, int row) {
+        if ((size + 1) * 2 > idKeys.length) {
+            long[] keys = idKeys;
+            int[] values = idRows;
+            idKeys = new long[keys.length * 2];
+            idRows = new int[keys.length * 2];
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (values[slot] != 0) {
+                    place(idKeys, idRows, keys[slot], keys[slot], values[slot]);
+                }
+            }
+        }
+        place(idKeys, idRows, id, id, row + 1);
+    }
+
+    private void insertEmail(long hash, int row) {
+        if ((size + 1) * 2 > emailKeys.length) {
+            long[] keys = emailKeys;
+            int[] values = emailRows;
+            emailKeys = new long[keys.length * 2];
+            emailRows = new int[keys.length * 2];
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (values[slot] != 0) {
+                    place(emailKeys, emailRows, keys[slot], keys[slot], values[slot]);
+                }
+            }
+        }
+        place(emailKeys, emailRows, hash, hash, row + 1);
+    }
+
+    private void removeEmail(int row) {
+        long ref = rows.getLong(row * ROW_BYTES + EMAIL);
+        long hash = emailHash(strings, ref);
+        int mask = emailKeys.length - 1;
+        for (int slot = mix(hash) & mask; emailRows[slot] != 0; slot = (slot + 1) & mask) {
+            if (emailRows[slot] == row + 1) {
+                deleteSlot(emailKeys, emailRows, slot);
+                return;
+            }
+        }
+    }
+
+    private static void place(long[] keys, int[] values, long key, long hash, int value) {
+        int mask = keys.length - 1;
+        int slot = mix(hash) & mask;
+        while (values[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    //backward shift deletion, linear probing stays correct without tombstones
+    private static void deleteSlot(long[] keys, int[] values, int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; values[next] != 0; next = (next + 1) & mask) {
+            int home = mix(keys[next]) & mask;
+            //move the entry back if the hole lies between its home slot and where it is now
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = 0;
+    }
+
+    private int allocateRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if ((rowLimit + 1) * ROW_BYTES > rows.capacity()) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(rows.capacity() * 2);
+            ByteBuffer old = rows.duplicate();
+            old.clear();
+            grown.put(old);
+            rows = grown;
+        }
+        return rowLimit++;
+    }
+
+    private void releaseRow(int row) {
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeRows.length * 2);
+        }
+        freeRows[freeCount++] = row;
+    }
+
+    private long intern(String name) {
+        long hash = hash(name);
+        int mask = nameKeys.length - 1;
+        int slot = mix(hash) & mask;
+        for (; nameRefs[slot] != 0; slot = (slot + 1) & mask) {
+            if (nameKeys[slot] == hash && contentEquals(strings, nameRefs[slot], name)) {
+                return nameRefs[slot];
+            }
+        }
+        long ref = store(name);
+        if ((names + 1) * 2 > nameKeys.length) {
+            long[] keys = nameKeys;
+            long[] refs = nameRefs;
+            nameKeys = new long[keys.length * 2];
+            nameRefs = new long[keys.length * 2];
+            for (int index = 0; index < keys.length; index++) {
+                if (refs[index] != 0) {
+                    int moved = mix(keys[index]) & (nameKeys.length - 1);
+                    while (nameRefs[moved] != 0) {
+                        moved = (moved + 1) & (nameKeys.length - 1);
+                    }
+                    nameKeys[moved] = keys[index];
+                    nameRefs[moved] = refs[index];
+                }
+            }
+            mask = nameKeys.length - 1;
+            slot = mix(hash) & mask;
+            while (nameRefs[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+        }
+        nameKeys[slot] = hash;
+        nameRefs[slot] = ref;
+        names++;
+        return ref;
+    }
+
+    //a reference is offset << 32 | length << 1 | utf16, latin 1 strings take a byte per char. the arena starts
+    //at offset 1 so that no reference is zero
+    private long store(String value) {
+        boolean latin1 = true;
+        for (int index = 0; index < value.length() && latin1; index++) {
+            latin1 = value.charAt(index) <= 0xFF;
+        }
+        int length = value.length() * (latin1 ? 1 : 2);
+        if (stringsUsed == 0) {
+            stringsUsed = 1;
+        }
+        ensureStrings(length);
+        int offset = stringsUsed;
+        for (int index = 0; index < value.length(); index++) {
+            if (latin1) {
+                strings.put(offset + index, (byte) value.charAt(index));
+            } else {
+                strings.putChar(offset + index * 2, value.charAt(index));
+            }
+        }
+        stringsUsed += length;
+        return (long) offset << 32 | (long) value.length() << 1 | (latin1 ? 0 : 1);
+    }
+
+    private void ensureStrings(int length) {
+        if ((long) stringsUsed + length <= strings.capacity()) {
+            return;
+        }
+        long capacity = Math.max((long) strings.capacity() * 2, (long) stringsUsed + length);
+        if (capacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("the replica strings do not fit into 2 GB");
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+        ByteBuffer old = strings.duplicate();
+        old.clear();
+        old.limit(stringsUsed);
+        grown.put(old);
+        strings = grown;
+    }
+
+    //rewrites the arena with the strings live rows still point at, once at least half of a sizable arena is garbage
+    private void compactIfWasteful() {
+        if (garbage <= stringsUsed / 2 || stringsUsed <= 1 << 20) {
+            return;
+        }
+        ByteBuffer old = strings;
+        strings = ByteBuffer.allocateDirect(old.capacity());
+        stringsUsed = 0;
+        garbage = 0;
+        Arrays.fill(nameKeys, 0);
+        Arrays.fill(nameRefs, 0);
+        names = 0;
+        Row row = new Row();
+        for (int slot = 0; slot < idKeys.length; slot++) {
+            if (idRows[slot] == 0) {
+                continue;
+            }
+            int base = (idRows[slot] - 1) * ROW_BYTES;
+            rows.putLong(base + FIRST_NAME, intern(decode(old, rows.getLong(base + FIRST_NAME), row.firstName).toString()));
+            rows.putLong(base + LAST_NAME, intern(decode(old, rows.getLong(base + LAST_NAME), row.lastName).toString()));
+            rows.putLong(base + EMAIL, store(decode(old, rows.getLong(base + EMAIL), row.email).toString()));
+        }
+    }
+
+    private static int bytes(long ref) {
+        int length = (int) (ref >>> 1) & 0x7FFFFFFF;
+        return (ref & 1) == 0 ? length : length * 2;
+    }
+
+    private static StringBuilder decode(ByteBuffer strings, long ref, StringBuilder target) {
+        int offset = (int) (ref >>> 32);
+        int length = (int) (ref >>> 1) & 0x7FFFFFFF;
+        boolean utf16 = (ref & 1) != 0;
+        target.setLength(0);
+        for (int index = 0; index < length; index++) {
+            target.append(utf16 ? strings.getChar(offset + index * 2) : (char) (strings.get(offset + index) & 0xFF));
+        }
+        return target;
+    }
+
+    private static char charAt(ByteBuffer strings, long ref, int index) {
+        int offset = (int) (ref >>> 32);
+        return (ref & 1) != 0 ? strings.getChar(offset + index * 2) : (char) (strings.get(offset + index) & 0xFF);
+    }
+
+    private static boolean contentEquals(ByteBuffer strings, long ref, CharSequence value) {
+        int length = (int) (ref >>> 1) & 0x7FFFFFFF;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int index = 0; index < length; index++) {
+            if (charAt(strings, ref, index) != value.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //mysql compares emails case insensitively, so does the email table
+    private static boolean equalsIgnoreCase(ByteBuffer strings, long ref, CharSequence value) {
+        int length = (int) (ref >>> 1) & 0x7FFFFFFF;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int index = 0; index < length; index++) {
+            if (Character.toLowerCase(charAt(strings, ref, index)) != Character.toLowerCase(value.charAt(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //fnv-1a over the chars
+    private static long hash(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int index = 0; index < value.length(); index++) {
+            hash = (hash ^ value.charAt(index)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long emailHash(CharSequence email) {
+        long hash = 0xcbf29ce484222325L;
+        for (int index = 0; index < email.length(); index++) {
+            hash = (hash ^ Character.toLowerCase(email.charAt(index))) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long emailHash(ByteBuffer strings, long ref) {
+        int length = (int) (ref >>> 1) & 0x7FFFFFFF;
+        long hash = 0xcbf29ce484222325L;
+        for (int index = 0; index < length; index++) {
+            hash = (hash ^ Character.toLowerCase(charAt(strings, ref, index))) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    //sequential ids would fill neighbouring slots, the murmur3 finalizer spreads them
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private static int tableSize(int expectedSize) {
+        return Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+    }
+
+    //reused across reads, its builders keep their capacity
+    public static class Row {
+
+        private long id;
+
+        private long version;
+
+        private final StringBuilder firstName = new StringBuilder(16);
+
+        private final StringBuilder lastName = new StringBuilder(16);
+
+        private final StringBuilder email = new StringBuilder(32);
+
+        public long getId() {
+            return id;
+        }
+
+        public boolean hasVersion() {
+            return version != NO_VERSION;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public CharSequence getFirstName() {
+            return firstName;
+        }
+
+        public CharSequence getLastName() {
+            return lastName;
+        }
+
+        public CharSequence getEmail() {
+            return email;
+        }
+
+        public Employee toEmployee() {
+            return Employee.builder()
+                    .id(id)
+                    .firstName(firstName.toString())
+                    .lastName(lastName.toString())
+                    .email(email.toString())
+                    .version(hasVersion() ? version : null)
+                    .build();
+        }
+    }
+}
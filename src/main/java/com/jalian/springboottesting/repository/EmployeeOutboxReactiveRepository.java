@@ -0,0 +1,44 @@
+package com.jalian.springboottesting.repository;
+
+import com.jalian.springboottesting.model.EmployeeOutboxEvent;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+//writes the outbox rows EmployeeChangeRelay numbers and streams, the relay itself stays on jpa
+@Repository
+@Profile("reactive")
+public class EmployeeOutboxReactiveRepository {
+
+    private final DatabaseClient databaseClient;
+
+    private final PooledSequence sequence;
+
+    @Autowired
+    public EmployeeOutboxReactiveRepository(DatabaseClient databaseClient, ConnectionFactory connectionFactory) {
+        this.databaseClient = databaseClient;
+        this.sequence = new PooledSequence(connectionFactory, "employee_outbox_seq");
+    }
+
+    public Mono<Long> nextId() {
+        return sequence.nextId();
+    }
+
+    public Mono<Void> insert(EmployeeOutboxEvent event) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("insert into employee_outbox "
+                        + "(id, type, employee_id, payload, created_at) values (:id, :type, :employeeId, :payload, :createdAt)")
+                .bind("id", event.getId())
+                .bind("type", event.getType().name())
+                .bind("employeeId", event.getEmployeeId())
+                //hibernate writes an Instant as the local date time of the jvm zone
+                .bind("createdAt", LocalDateTime.ofInstant(event.getCreatedAt(), ZoneId.systemDefault()));
+        spec = event.getPayload() == null ? spec.bindNull("payload", String.class) : spec.bind("payload", event.getPayload());
+        return spec.then();
+    }
+}
@@ -0,0 +1,19 @@
+package com.jalian.springboottesting.repository;
+
+import com.jalian.springboottesting.model.EmployeeOutboxRelayLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+@Repository
+public interface EmployeeOutboxRelayLockRepository extends JpaRepository<EmployeeOutboxRelayLock, Long> {
+
+    //select ... for update, held until the relay transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from EmployeeOutboxRelayLock l where l.id = ?1")
+    Optional<EmployeeOutboxRelayLock> findForUpdate(Long id);
+}
@@ -0,0 +1,29 @@
+package com.jalian.springboottesting.repository;
+
+import com.jalian.springboottesting.model.EmployeeOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface EmployeeOutboxRepository extends JpaRepository<EmployeeOutboxEvent, Long> {
+
+    List<EmployeeOutboxEvent> findByPositionIsNullOrderByIdAsc(Pageable pageable);
+
+    List<EmployeeOutboxEvent> findByPositionGreaterThanOrderByPositionAsc(Long position, Pageable pageable);
+
+    @Query("select max(e.position) from EmployeeOutboxEvent e")
+    Long findMaxPosition();
+
+    @Query("select min(e.position) from EmployeeOutboxEvent e")
+    Long findMinPosition();
+
+    @Modifying(clearAutomatically = true)
+    @Query("delete from EmployeeOutboxEvent e where e.createdAt < ?1 and e.position < ?2")
+    int removeRelayedBefore(Instant before, Long position);
+}
@@ -0,0 +1,173 @@
+package com.jalian.springboottesting.repository;
+
+import com.jalian.springboottesting.model.Employee;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+//the same statements as EmployeeRepository, over r2dbc. plain sql so the jpa entity needs no spring data
+//relational mapping of its own
+@Repository
+@Profile("reactive")
+public class EmployeeReactiveRepository {
+
+    private static final String SELECT = "select id, first_name, last_name, email, version from employee";
+
+    //the fields a sparse fieldset may ask for and their columns
+    public static final Map<String, String> COLUMNS = columns();
+
+    private final DatabaseClient databaseClient;
+
+    private final PooledSequence sequence;
+
+    @Autowired
+    public EmployeeReactiveRepository(DatabaseClient databaseClient, ConnectionFactory connectionFactory) {
+        this.databaseClient = databaseClient;
+        this.sequence = new PooledSequence(connectionFactory, "employee_seq");
+    }
+
+    public Mono<Long> nextId() {
+        return sequence.nextId();
+    }
+
+    //rows are requested from the driver as the subscriber asks for them
+    public Flux<Employee> findAllOrderedById() {
+        return databaseClient.sql(SELECT + " order by id")
+                .map(EmployeeReactiveRepository::toEmployee)
+                .all();
+    }
+
+    public Flux<Employee> findByIdGreaterThan(long after, int limit) {
+        return databaseClient.sql(SELECT + " where id > :after order by id limit :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(EmployeeReactiveRepository::toEmployee)
+                .all();
+    }
+
+    //only the requested columns, keyed by field in the order they were asked for
+    public Flux<Map<String, Object>> findAllFields(List<String> fields) {
+        String columns = fields.stream().map(COLUMNS::get).collect(Collectors.joining(", "));
+        return databaseClient.sql("select " + columns + " from employee order by id")
+                .map(row -> {
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    fields.forEach(field -> values.put(field, row.get(COLUMNS.get(field))));
+                    return values;
+                })
+                .all();
+    }
+
+    //in no particular order, the caller keeps the chunks short
+    public Flux<Employee> findAllByIdIn(Collection<Long> ids) {
+        return databaseClient.sql(SELECT + " where id in (:ids)")
+                .bind("ids", ids)
+                .map(EmployeeReactiveRepository::toEmployee)
+                .all();
+    }
+
+    public Mono<Employee> findById(Long id) {
+        return databaseClient.sql(SELECT + " where id = :id")
+                .bind("id", id)
+                .map(EmployeeReactiveRepository::toEmployee)
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return databaseClient.sql("select id from employee where id = :id")
+                .bind("id", id)
+                .map(row -> true)
+                .first()
+                .defaultIfEmpty(false);
+    }
+
+    //the id and version are set by the caller
+    public Mono<Void> insert(Employee employee) {
+        return bindNullable(databaseClient.sql("insert into employee (id, first_name, last_name, email, version) "
+                        + "values (:id, :firstName, :lastName, :email, :version)"), employee)
+                .bind("id", employee.getId())
+                .bind("version", employee.getVersion())
+                .then();
+    }
+
+    public Mono<Integer> updateById(Employee employee) {
+        return bindNullable(databaseClient.sql("update employee set first_name = :firstName, last_name = :lastName, "
+                        + "email = :email, version = version + 1 where id = :id"), employee)
+                .bind("id", employee.getId())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> updateByIdAndVersion(Employee employee) {
+        return bindNullable(databaseClient.sql("update employee set first_name = :firstName, last_name = :lastName, "
+                        + "email = :email, version = version + 1 where id = :id and version = :version"), employee)
+                .bind("id", employee.getId())
+                .bind("version", employee.getVersion())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> findVersionById(Long id) {
+        return databaseClient.sql("select version from employee where id = :id")
+                .bind("id", id)
+                .map(row -> row.get("version", Long.class))
+                .one();
+    }
+
+    public Mono<Integer> removeById(Long id) {
+        return databaseClient.sql("delete from employee where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> removeByIdAndVersion(Long id, Long version) {
+        return databaseClient.sql("delete from employee where id = :id and version = :version")
+                .bind("id", id)
+                .bind("version", version)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    //a missing name reaches the not null constraint, as it does through hibernate
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, Employee employee) {
+        spec = bind(spec, "firstName", employee.getFirstName());
+        spec = bind(spec, "lastName", employee.getLastName());
+        return bind(spec, "email", employee.getEmail());
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private static Map<String, String> columns() {
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("id", "id");
+        columns.put("firstName", "first_name");
+        columns.put("lastName", "last_name");
+        columns.put("email", "email");
+        columns.put("version", "version");
+        return Collections.unmodifiableMap(columns);
+    }
+
+    private static Employee toEmployee(Row row) {
+        return Employee.builder()
+                .id(row.get("id", Long.class))
+                .firstName(row.get("first_name", String.class))
+                .lastName(row.get("last_name", String.class))
+                .email(row.get("email", String.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+}
@@ -1,17 +1,55 @@
 package com.jalian.springboottesting.repository;
 
 import com.jalian.springboottesting.model.Employee;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
 
 @Repository
-public interface EmployeeRepository extends JpaRepository<Employee, Long> {
+public interface EmployeeRepository extends JpaRepository<Employee, Long>, EmployeeRepositoryCustom {
 
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION)})
     Employee findByEmail(String email);
 
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = Employee.QUERY_CACHE_REGION)})
     @Query("select e from Employee e where e.firstName = ?1 and e.lastName = ?2")
     Employee findByFirstNameAndLastName(String firstName, String lastName);
+
+    @Query("select e.email from Employee e where e.email in ?1")
+    List<String> findEmailsIn(Collection<String> emails);
+
+    List<Employee> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    //locks the rows a bulk delete is about to remove, so it knows which deletes to announce
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e.id from Employee e where e.id in ?1")
+    List<Long> findIdsInForUpdate(Collection<Long> ids);
+
+    //single row writes go through the entity, hibernate then replaces just this id in the second level cache where a
+    //bulk update or delete empties the whole region. the lock makes an update without a version wait for the one before
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from Employee e where e.id = ?1")
+    Optional<Employee> findByIdForUpdate(Long id);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Employee e set e.firstName = coalesce(?2, e.firstName), e.lastName = coalesce(?3, e.lastName), "
+            + "e.version = e.version + 1 where e.id in ?1")
+    int updateNamesByIdIn(Collection<Long> ids, String firstName, String lastName);
+
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Employee e where e.id in ?1")
+    int removeByIdIn(Collection<Long> ids);
 }
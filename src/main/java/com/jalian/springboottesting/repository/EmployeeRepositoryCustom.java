@@ -0,0 +1,21 @@
+package com.jalian.springboottesting.repository;
+
+import com.jalian.springboottesting.model.Employee;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public interface EmployeeRepositoryCustom {
+
+    void forEachOrderedById(Consumer<Employee> action);
+
+    void forEachRowOrderedById(Consumer<Employee> action);
+
+    void insertAll(List<Employee> employees);
+
+    List<Map<String, Object>> findAllFields(List<String> fields);
+
+    //one employee per id in the same order, null where there is none
+    List<Employee> findAllByIdInOrder(List<Long> ids, int chunkSize);
+}
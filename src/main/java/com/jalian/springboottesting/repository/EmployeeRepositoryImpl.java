@@ -0,0 +1,115 @@
+package com.jalian.springboottesting.repository;
+
+import com.jalian.springboottesting.model.Employee;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class EmployeeRepositoryImpl implements EmployeeRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //rows per round trip, mysql honours it only with useCursorFetch=true
+    private final int fetchSize;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public EmployeeRepositoryImpl(@Value("${employee.stream.fetch-size:1000}") int fetchSize, JdbcTemplate jdbcTemplate) {
+        this.fetchSize = fetchSize;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void forEachOrderedById(Consumer<Employee> action) {
+        try (Stream<Employee> employees = entityManager
+                .createQuery("select e from Employee e order by e.id", Employee.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream()) {
+            employees.forEach(employee -> {
+                //detach right away so the persistence context does not grow with the table
+                entityManager.detach(employee);
+                action.accept(employee);
+            });
+        }
+    }
+
+    @Override
+    public void forEachRowOrderedById(Consumer<Employee> action) {
+        //plain jdbc, rows become throw away employees that hibernate never sees
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "select id, first_name, last_name, email, version from employee order by id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (ResultSet resultSet) -> action.accept(Employee.builder()
+                .id(resultSet.getLong(1))
+                .firstName(resultSet.getString(2))
+                .lastName(resultSet.getString(3))
+                .email(resultSet.getString(4))
+                .version(resultSet.getLong(5))
+                .build()));
+    }
+
+    @Override
+    public void insertAll(List<Employee> employees) {
+        //persist never merges, so no select per row, and the flush goes out as jdbc batches
+        employees.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public List<Map<String, Object>> findAllFields(List<String> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Employee> employee = query.from(Employee.class);
+        //only the requested columns reach the select list, tuples never enter the persistence context
+        query.multiselect(fields.stream()
+                        .<Selection<?>>map(field -> employee.get(field).alias(field))
+                        .collect(Collectors.toList()))
+                .orderBy(builder.asc(employee.get("id")));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).setHint(QueryHints.HINT_FETCH_SIZE, fetchSize).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            fields.forEach(field -> row.put(field, tuple.get(field)));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Employee> findAllByIdInOrder(List<Long> ids, int chunkSize) {
+        //ids already in the persistence context or the second level cache are not queried, the rest go out as
+        //where id in (...) with at most chunkSize ids each
+        return entityManager.unwrap(Session.class).byMultipleIds(Employee.class)
+                .enableSessionCheck(true)
+                .enableOrderedReturn(true)
+                .withBatchSize(chunkSize)
+                .multiLoad(ids);
+    }
+}
@@ -0,0 +1,87 @@
+package com.jalian.springboottesting.repository;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+//hands out ids the way hibernate's pooled optimizer does with allocationSize = 50, the sequence value is the
+//top of a block of 50, so ids taken here and by hibernate never collide. one round trip per 50 ids
+class PooledSequence {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final ConnectionFactory connectionFactory;
+
+    private final String nextValueSql;
+
+    private final String lastValueSql;
+
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(1, 0));
+
+    PooledSequence(ConnectionFactory connectionFactory, String name) {
+        this.connectionFactory = connectionFactory;
+        if ("MySQL".equalsIgnoreCase(connectionFactory.getMetadata().getName())) {
+            //no sequences in mysql, hibernate keeps next_val in a table. last_insert_id hands the old value back
+            //to this connection, so no transaction has to hold the row lock
+            this.nextValueSql = "update " + name + " set next_val = last_insert_id(next_val) + " + ALLOCATION_SIZE;
+            this.lastValueSql = "select last_insert_id()";
+        } else {
+            this.nextValueSql = "select next value for " + name;
+            this.lastValueSql = null;
+        }
+    }
+
+    //always on a connection of its own, inside a transaction the mysql update would lock the row until commit
+    Mono<Long> nextId() {
+        return Mono.defer(() -> {
+            long id = block.get().next();
+            if (id > 0) {
+                return Mono.just(id);
+            }
+            return Mono.usingWhen(connectionFactory.create(), this::nextValue, Connection::close).map(value -> {
+                Block allocated = new Block(Math.max(1, value - ALLOCATION_SIZE + 1), value);
+                long first = allocated.next();
+                //a racing allocation may replace a block that still had ids left, those ids are skipped
+                block.set(allocated);
+                return first;
+            });
+        });
+    }
+
+    private Mono<Long> nextValue(Connection connection) {
+        if (lastValueSql == null) {
+            return query(connection, nextValueSql);
+        }
+        return Flux.from(connection.createStatement(nextValueSql).execute())
+                .flatMap(result -> result.getRowsUpdated())
+                .then(query(connection, lastValueSql));
+    }
+
+    private static Mono<Long> query(Connection connection, String sql) {
+        return Flux.from(connection.createStatement(sql).execute())
+                .flatMap(result -> result.map((row, metadata) -> ((Number) row.get(0)).longValue()))
+                .next();
+    }
+
+    private static class Block {
+
+        private final AtomicLong next;
+
+        private final long last;
+
+        private Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+
+        //-1 once the block is used up
+        private long next() {
+            long id = next.getAndIncrement();
+            return id <= last ? id : -1;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.jalian.springboottesting.search;
+
+import com.jalian.springboottesting.config.EmployeeRoutingDataSource;
+import com.jalian.springboottesting.event.EmployeeChangedEvent;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.repository.EmployeeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+//in process prefix index over names and emails, searches never touch the database
+@Component
+public class EmployeeSearchIndex {
+
+    //ascending from the worst match so the heap drops it first, on equal scores the alphabetically first term wins
+    private static final Comparator<Match> RANKING = Comparator.comparingInt((Match match) -> match.score)
+            .thenComparingInt(match -> -match.order);
+
+    private final EmployeeRepository employeeRepository;
+
+    //term -> ids, a prefix query is a range scan of the sorted terms
+    private final ConcurrentSkipListMap<String, Set<Long>> terms = new ConcurrentSkipListMap<>();
+
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EmployeeSearchIndex(EmployeeRepository employeeRepository) {
+        this.employeeRepository = employeeRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        clear();
+        EmployeeRoutingDataSource.onPrimary(() -> employeeRepository.forEachOrderedById(this::put));
+    }
+
+    //after commit so a rolled back write never shows up in the results
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event) {
+        if (event.getType() == EmployeeChangedEvent.Type.DELETED) {
+            remove(event.getId());
+        } else {
+            put(event.getEmployee());
+        }
+    }
+
+    public List<Employee> search(String query, int limit) {
+        List<String> words = words(query);
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        //candidates come from the longest word, it matches the fewest terms
+        String seed = Collections.max(words, Comparator.comparingInt(String::length));
+        NavigableMap<String, Set<Long>> matchingTerms = terms.subMap(seed, true, seed + Character.MAX_VALUE, true);
+        int ceiling = Document.EXACT * words.size();
+        Set<Long> seen = new HashSet<>();
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, RANKING);
+        for (Map.Entry<String, Set<Long>> term : matchingTerms.entrySet()) {
+            if (!term.getKey().equals(seed)) {
+                //past the exact term the seed word scores less, stop once nothing left can beat what we have
+                ceiling = Document.EXACT * words.size() - 1;
+            }
+            for (Long id : term.getValue()) {
+                if (best.size() == limit && best.peek().score >= ceiling) {
+                    return ranked(best);
+                }
+                Document document = documents.get(id);
+                if (document == null || !seen.add(id)) {
+                    continue;
+                }
+                int score = document.score(words);
+                if (score > 0) {
+                    best.add(new Match(document, score, seen.size()));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+        return ranked(best);
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    //writers are serialized, readers only see whole sets of terms added or removed
+    private synchronized void put(Employee employee) {
+        removeTerms(documents.get(employee.getId()));
+        Document document = new Document(employee.toBuilder().build());
+        documents.put(employee.getId(), document);
+        for (String term : document.terms) {
+            terms.computeIfAbsent(term, key -> ConcurrentHashMap.newKeySet()).add(employee.getId());
+        }
+    }
+
+    private synchronized void remove(Long id) {
+        removeTerms(documents.remove(id));
+    }
+
+    private synchronized void clear() {
+        terms.clear();
+        documents.clear();
+    }
+
+    private static List<Employee> ranked(PriorityQueue<Match> best) {
+        List<Employee> employees = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            employees.add(best.poll().document.employee.toBuilder().build());
+        }
+        Collections.reverse(employees);
+        return employees;
+    }
+
+    private void removeTerms(Document document) {
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms) {
+            Set<Long> ids = terms.get(term);
+            if (ids != null) {
+                ids.remove(document.employee.getId());
+                if (ids.isEmpty()) {
+                    terms.remove(term, ids);
+                }
+            }
+        }
+    }
+
+    //query words are only split on spaces, so aj@gm still matches the whole email
+    private static List<String> words(String query) {
+        return split(query, "\\s+");
+    }
+
+    private static List<String> split(String value, String separators) {
+        List<String> tokens = new ArrayList<>();
+        if (value == null) {
+            return tokens;
+        }
+        for (String token : value.toLowerCase(Locale.ROOT).split(separators)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Document {
+
+        private static final int EXACT = 3;
+
+        private static final int NAME_PREFIX = 2;
+
+        private static final int EMAIL_PREFIX = 1;
+
+        private final Employee employee;
+
+        private final List<String> names;
+
+        //names, the parts of the email before the domain and the whole email
+        private final Set<String> terms;
+
+        private Document(Employee employee) {
+            this.employee = employee;
+            this.names = split(employee.getFirstName() + " " + employee.getLastName(), "\\s+");
+            this.terms = new LinkedHashSet<>(names);
+            if (employee.getEmail() != null) {
+                String email = employee.getEmail().toLowerCase(Locale.ROOT);
+                int at = email.indexOf('@');
+                this.terms.addAll(split(at < 0 ? email : email.substring(0, at), "[._+-]+"));
+                this.terms.add(email);
+            }
+        }
+
+        //every word has to match, an exact name beats a name prefix which beats an email prefix
+        private int score(List<String> words) {
+            int score = 0;
+            for (String word : words) {
+                int best = 0;
+                for (String name : names) {
+                    best = Math.max(best, name.equals(word) ? EXACT : name.startsWith(word) ? NAME_PREFIX : 0);
+                }
+                if (best == 0) {
+                    for (String term : terms) {
+                        if (term.startsWith(word)) {
+                            best = EMAIL_PREFIX;
+                            break;
+                        }
+                    }
+                }
+                if (best == 0) {
+                    return 0;
+                }
+                score += best;
+            }
+            return score;
+        }
+    }
+
+    private static final class Match {
+
+        private final Document document;
+
+        private final int score;
+
+        private final int order;
+
+        private Match(Document document, int score, int order) {
+            this.document = document;
+            this.score = score;
+            this.order = order;
+        }
+    }
+}
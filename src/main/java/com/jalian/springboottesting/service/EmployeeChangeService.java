@@ -0,0 +1,21 @@
+package com.jalian.springboottesting.service;
+
+import com.jalian.springboottesting.dto.EmployeeChange;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface EmployeeChangeService {
+
+    //numbers the oldest committed outbox rows that have no position yet and returns them in position order
+    List<EmployeeChange> relay(int limit);
+
+    List<EmployeeChange> findSince(long position, int limit);
+
+    //0 while the outbox is empty
+    long firstPosition();
+
+    long lastPosition();
+
+    int purgeRelayedBefore(Instant before);
+}
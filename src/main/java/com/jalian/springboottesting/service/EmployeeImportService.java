@@ -0,0 +1,18 @@
+package com.jalian.springboottesting.service;
+
+import com.jalian.springboottesting.dto.EmployeeImportJob;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+
+public interface EmployeeImportService {
+
+    EmployeeImportJob importNdjson(InputStream body);
+
+    EmployeeImportJob importCsv(InputStream body);
+
+    List<EmployeeImportJob> findJobs();
+
+    Optional<EmployeeImportJob> findJob(long id);
+}
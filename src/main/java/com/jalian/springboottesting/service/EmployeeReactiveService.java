@@ -0,0 +1,33 @@
+package com.jalian.springboottesting.service;
+
+import com.jalian.springboottesting.dto.EmployeeLookup;
+import com.jalian.springboottesting.dto.EmployeePage;
+import com.jalian.springboottesting.model.Employee;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+//the subset of EmployeeService the reactive api serves, errors arrive as error signals instead of exceptions
+public interface EmployeeReactiveService {
+
+    Mono<Employee> save(Employee employee);
+
+    Flux<Employee> findAll();
+
+    Flux<Map<String, Object>> findAll(Collection<String> fields);
+
+    Mono<EmployeePage> findPage(long after, int limit);
+
+    Mono<EmployeeLookup> findAllById(List<Long> ids);
+
+    Mono<Employee> findById(Long id);
+
+    Mono<Employee> update(Employee employee);
+
+    Mono<Void> delete(Long id);
+
+    Mono<Void> delete(Long id, Long version);
+}
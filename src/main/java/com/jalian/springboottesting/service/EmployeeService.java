@@ -1,19 +1,49 @@
 package com.jalian.springboottesting.service;
 
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.dto.EmployeeBulkResult;
+import com.jalian.springboottesting.dto.EmployeeBulkUpdate;
+import com.jalian.springboottesting.dto.EmployeeLookup;
+import com.jalian.springboottesting.dto.EmployeePage;
 import com.jalian.springboottesting.model.Employee;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface EmployeeService {
 
     Employee save(Employee employee);
 
+    List<EmployeeBatchResult> saveAll(List<Employee> employees);
+
     List<Employee> findAll();
 
+    List<Map<String, Object>> findAll(Collection<String> fields);
+
+    EmployeePage findPage(long after, int limit);
+
+    List<Employee> search(String query, int limit);
+
+    void forEach(Consumer<Employee> action);
+
+    void forEachRow(Consumer<Employee> action);
+
     Employee update(Employee employee);
 
     Optional<Employee> findById(Long id);
 
+    EmployeeLookup findAllById(List<Long> ids);
+
+    Optional<Employee> findByEmail(String email);
+
     void delete(Long id);
+
+    void delete(Long id, Long version);
+
+    EmployeeBulkResult updateAll(EmployeeBulkUpdate update);
+
+    EmployeeBulkResult deleteAll(List<Long> ids);
 }
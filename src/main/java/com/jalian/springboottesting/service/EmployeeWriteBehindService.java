@@ -0,0 +1,24 @@
+package com.jalian.springboottesting.service;
+
+import com.jalian.springboottesting.dto.EmployeeWrite;
+import com.jalian.springboottesting.model.Employee;
+
+import java.util.Optional;
+
+public interface EmployeeWriteBehindService {
+
+    boolean isEnabled();
+
+    //waits until the group holding the employee has committed, or employee.write-behind.wait-timeout
+    Employee save(Employee employee);
+
+    //returns as soon as the employee is queued
+    EmployeeWrite submit(Employee employee);
+
+    Optional<EmployeeWrite> findWrite(long id);
+
+    //false once the writer thread has died, nothing queued would be written any more
+    boolean isWriterAlive();
+
+    int queued();
+}
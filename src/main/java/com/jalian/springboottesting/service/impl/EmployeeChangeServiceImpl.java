@@ -0,0 +1,126 @@
+package com.jalian.springboottesting.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.dto.EmployeeChange;
+import com.jalian.springboottesting.event.EmployeeChangedEvent;
+import com.jalian.springboottesting.model.EmployeeOutboxEvent;
+import com.jalian.springboottesting.model.EmployeeOutboxRelayLock;
+import com.jalian.springboottesting.repository.EmployeeOutboxRelayLockRepository;
+import com.jalian.springboottesting.repository.EmployeeOutboxRepository;
+import com.jalian.springboottesting.service.EmployeeChangeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//reads go to the primary on purpose, a lagging replica would hide positions the relay just assigned
+@Service
+@Transactional
+public class EmployeeChangeServiceImpl implements EmployeeChangeService {
+
+    private final EmployeeOutboxRepository employeeOutboxRepository;
+
+    private final EmployeeOutboxRelayLockRepository relayLockRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final String nodeId;
+
+    @Autowired
+    public EmployeeChangeServiceImpl(EmployeeOutboxRepository employeeOutboxRepository,
+                                     EmployeeOutboxRelayLockRepository relayLockRepository, ObjectMapper objectMapper,
+                                     EmployeeProperties employeeProperties) {
+        this.employeeOutboxRepository = employeeOutboxRepository;
+        this.relayLockRepository = relayLockRepository;
+        this.objectMapper = objectMapper;
+        this.nodeId = employeeProperties.getOutbox().getNodeId();
+    }
+
+    //a plain listener runs inside the transaction that published the event, so the outbox row commits or
+    //rolls back together with the employee change
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(EmployeeChangedEvent event) {
+        employeeOutboxRepository.save(EmployeeOutboxEvent.builder()
+                .type(event.getType())
+                .employeeId(event.getId())
+                .payload(event.getEmployee() == null ? null : toJson(event))
+                .createdAt(Instant.now())
+                .nodeId(nodeId)
+                .build());
+    }
+
+    @Override
+    public List<EmployeeChange> relay(int limit) {
+        //relays on other nodes wait here until this one commits, then read the rows and the last position it left.
+        //the lock comes before any other read, so a repeatable read snapshot cannot predate their commit
+        lockRelay();
+        List<EmployeeOutboxEvent> events = employeeOutboxRepository.findByPositionIsNullOrderByIdAsc(PageRequest.of(0, limit));
+        if (events.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long position = lastPosition();
+        for (EmployeeOutboxEvent event : events) {
+            event.setPosition(++position);
+        }
+        return events.stream().map(this::toChange).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<EmployeeChange> findSince(long position, int limit) {
+        return employeeOutboxRepository.findByPositionGreaterThanOrderByPositionAsc(position, PageRequest.of(0, limit)).stream()
+                .map(this::toChange)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long firstPosition() {
+        Long position = employeeOutboxRepository.findMinPosition();
+        return position == null ? 0 : position;
+    }
+
+    @Override
+    public long lastPosition() {
+        Long position = employeeOutboxRepository.findMaxPosition();
+        return position == null ? 0 : position;
+    }
+
+    @Override
+    public int purgeRelayedBefore(Instant before) {
+        //the newest row always stays, numbering would start over from an empty outbox
+        return employeeOutboxRepository.removeRelayedBefore(before, lastPosition());
+    }
+
+    //flyway creates the row, a schema from ddl-auto gets it from the first relay. two nodes creating it at once
+    //leaves one of them with a duplicate key, its round rolls back and the next one finds the row
+    private void lockRelay() {
+        if (!relayLockRepository.findForUpdate(EmployeeOutboxRelayLock.ID).isPresent()) {
+            //the inserted row stays locked until commit just the same
+            relayLockRepository.saveAndFlush(new EmployeeOutboxRelayLock(EmployeeOutboxRelayLock.ID));
+        }
+    }
+
+    //unchecked, a checked exception would not roll the employee change back
+    private String toJson(EmployeeChangedEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event.getEmployee());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private EmployeeChange toChange(EmployeeOutboxEvent event) {
+        return new EmployeeChange(event.getPosition(), event.getType(), event.getEmployeeId(), event.getPayload(), event.getCreatedAt(),
+                event.getNodeId());
+    }
+}
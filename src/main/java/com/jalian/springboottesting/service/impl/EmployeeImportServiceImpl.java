@@ -0,0 +1,277 @@
+package com.jalian.springboottesting.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.dto.EmployeeImportJob;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeImportService;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//deliberately not @Transactional, every chunk commits on its own through EmployeeService.saveAll
+@Service
+public class EmployeeImportServiceImpl implements EmployeeImportService {
+
+    private final EmployeeService employeeService;
+
+    private final EmployeeProperties employeeProperties;
+
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final ConcurrentSkipListMap<Long, Job> jobs = new ConcurrentSkipListMap<>();
+
+    @Autowired
+    public EmployeeImportServiceImpl(EmployeeService employeeService, EmployeeProperties employeeProperties,
+                                     ObjectMapper objectMapper) {
+        this.employeeService = employeeService;
+        this.employeeProperties = employeeProperties;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public EmployeeImportJob importNdjson(InputStream body) {
+        return run(body, new RowParser() {
+            @Override
+            public Employee parse(String line) throws JsonProcessingException {
+                return objectMapper.readValue(line, Employee.class);
+            }
+        });
+    }
+
+    @Override
+    public EmployeeImportJob importCsv(InputStream body) {
+        return run(body, new RowParser() {
+
+            private Map<String, Integer> columns;
+
+            @Override
+            public Employee parse(String line) {
+                List<String> values = csv(line);
+                if (columns == null) {
+                    columns = new HashMap<>();
+                    for (int i = 0; i < values.size(); i++) {
+                        columns.put(values.get(i).trim(), i);
+                    }
+                    return null;
+                }
+                return Employee.builder()
+                        .firstName(column(values, "firstName"))
+                        .lastName(column(values, "lastName"))
+                        .email(column(values, "email"))
+                        .build();
+            }
+
+            private String column(List<String> values, String name) {
+                Integer index = columns.get(name);
+                return index == null || index >= values.size() || values.get(index).isEmpty() ? null : values.get(index);
+            }
+        });
+    }
+
+    @Override
+    public List<EmployeeImportJob> findJobs() {
+        List<EmployeeImportJob> snapshots = new ArrayList<>();
+        jobs.descendingMap().values().forEach(job -> snapshots.add(job.snapshot()));
+        return snapshots;
+    }
+
+    @Override
+    public Optional<EmployeeImportJob> findJob(long id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::snapshot);
+    }
+
+    //the body is read one line at a time on the request thread, the client cannot send faster than we commit
+    private EmployeeImportJob run(InputStream body, RowParser parser) {
+        EmployeeProperties.BulkImport settings = employeeProperties.getBulkImport();
+        Job job = new Job(sequence.incrementAndGet(), settings.getMaxReportedRejections());
+        jobs.put(job.id, job);
+        evictFinishedJobs(settings.getRetainedJobs());
+        List<Employee> chunk = new ArrayList<>(settings.getChunkSize());
+        List<Long> lines = new ArrayList<>(settings.getChunkSize());
+        long lineNumber = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                Employee employee;
+                try {
+                    employee = parser.parse(line);
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    job.rows.incrementAndGet();
+                    job.reject(lineNumber, "malformed row");
+                    continue;
+                }
+                if (employee == null) {
+                    continue;
+                }
+                job.rows.incrementAndGet();
+                chunk.add(employee);
+                lines.add(lineNumber);
+                if (chunk.size() >= settings.getChunkSize()) {
+                    commit(job, chunk, lines);
+                }
+            }
+            commit(job, chunk, lines);
+            job.finish(EmployeeImportJob.Status.COMPLETED, null);
+        } catch (IOException | UncheckedIOException e) {
+            //whatever was committed before the upload broke stays committed
+            job.finish(EmployeeImportJob.Status.FAILED, "the upload was interrupted at line " + lineNumber);
+        } catch (RuntimeException e) {
+            job.finish(EmployeeImportJob.Status.FAILED, e.getMessage());
+            throw e;
+        }
+        return job.snapshot();
+    }
+
+    private void commit(Job job, List<Employee> chunk, List<Long> lines) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            record(job, employeeService.saveAll(chunk), lines);
+        } catch (RuntimeException e) {
+            //the chunk rolled back, retry row by row so only the offending rows are rejected
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    record(job, employeeService.saveAll(Collections.singletonList(chunk.get(i))), lines.subList(i, i + 1));
+                } catch (RuntimeException rowFailure) {
+                    job.reject(lines.get(i), "the employee could not be saved");
+                }
+            }
+        }
+        chunk.clear();
+        lines.clear();
+    }
+
+    private void record(Job job, List<EmployeeBatchResult> results, List<Long> lines) {
+        for (EmployeeBatchResult result : results) {
+            if (result.getStatus() == EmployeeBatchResult.Status.CREATED) {
+                job.created.incrementAndGet();
+            } else {
+                job.reject(lines.get(result.getIndex()), result.getMessage());
+            }
+        }
+    }
+
+    private void evictFinishedJobs(int retainedJobs) {
+        for (Job job : jobs.values()) {
+            if (jobs.size() <= retainedJobs) {
+                return;
+            }
+            if (job.status != EmployeeImportJob.Status.RUNNING) {
+                jobs.remove(job.id);
+            }
+        }
+    }
+
+    //rfc 4180 fields, quoted fields may hold commas and doubled quotes but not line breaks
+    static List<String> csv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quote");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private interface RowParser {
+
+        //null for rows that carry no employee, such as the csv header
+        Employee parse(String line) throws JsonProcessingException;
+    }
+
+    private static final class Job {
+
+        private final long id;
+
+        private final Instant startedAt = Instant.now();
+
+        private final int maxReportedRejections;
+
+        private final AtomicLong rows = new AtomicLong();
+
+        private final AtomicLong created = new AtomicLong();
+
+        private final AtomicLong rejected = new AtomicLong();
+
+        private final List<EmployeeImportJob.Rejection> rejections = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile EmployeeImportJob.Status status = EmployeeImportJob.Status.RUNNING;
+
+        private volatile Instant finishedAt;
+
+        private volatile String message;
+
+        private Job(long id, int maxReportedRejections) {
+            this.id = id;
+            this.maxReportedRejections = maxReportedRejections;
+        }
+
+        private void reject(long line, String reason) {
+            if (rejected.incrementAndGet() <= maxReportedRejections) {
+                rejections.add(new EmployeeImportJob.Rejection(line, reason));
+            }
+        }
+
+        private void finish(EmployeeImportJob.Status status, String message) {
+            this.message = message;
+            this.finishedAt = Instant.now();
+            this.status = status;
+        }
+
+        private EmployeeImportJob snapshot() {
+            List<EmployeeImportJob.Rejection> reported;
+            synchronized (rejections) {
+                reported = new ArrayList<>(rejections);
+            }
+            return new EmployeeImportJob(id, status, startedAt, finishedAt, rows.get(), created.get(), rejected.get(),
+                    reported, message);
+        }
+    }
+}
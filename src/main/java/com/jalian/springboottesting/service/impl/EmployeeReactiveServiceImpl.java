@@ -0,0 +1,215 @@
+package com.jalian.springboottesting.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.dto.EmployeeLookup;
+import com.jalian.springboottesting.dto.EmployeePage;
+import com.jalian.springboottesting.event.EmployeeChangedEvent;
+import com.jalian.springboottesting.exception.InvalidFieldsException;
+import com.jalian.springboottesting.exception.PreconditionFailedException;
+import com.jalian.springboottesting.exception.ResourceAlreadyExistsException;
+import com.jalian.springboottesting.exception.ResourceNotFoundException;
+import com.jalian.springboottesting.exception.TooManyIdsException;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.model.EmployeeOutboxEvent;
+import com.jalian.springboottesting.repository.EmployeeOutboxReactiveRepository;
+import com.jalian.springboottesting.repository.EmployeeReactiveRepository;
+import com.jalian.springboottesting.service.EmployeeReactiveService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+//ids come from their sequences before the transaction starts, the transaction then covers the employee
+//statement and its outbox row, just like the jpa service and its event listener
+@Service
+@Profile("reactive")
+public class EmployeeReactiveServiceImpl implements EmployeeReactiveService {
+
+    private final EmployeeReactiveRepository employeeRepository;
+
+    private final EmployeeOutboxReactiveRepository outboxRepository;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final ObjectMapper objectMapper;
+
+    private final EmployeeProperties employeeProperties;
+
+    @Autowired
+    public EmployeeReactiveServiceImpl(EmployeeReactiveRepository employeeRepository,
+                                       EmployeeOutboxReactiveRepository outboxRepository,
+                                       TransactionalOperator transactionalOperator, ObjectMapper objectMapper,
+                                       EmployeeProperties employeeProperties) {
+        this.employeeRepository = employeeRepository;
+        this.outboxRepository = outboxRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.objectMapper = objectMapper;
+        this.employeeProperties = employeeProperties;
+    }
+
+    @Override
+    public Mono<Employee> save(Employee employee) {
+        return Mono.zip(employeeRepository.nextId(), outboxRepository.nextId())
+                .flatMap(ids -> {
+                    employee.setId(ids.getT1());
+                    employee.setVersion(0L);
+                    return employeeRepository.insert(employee)
+                            .then(Mono.defer(() -> record(ids.getT2(), EmployeeChangedEvent.saved(employee))))
+                            .as(transactionalOperator::transactional);
+                })
+                .onErrorMap(DataIntegrityViolationException.class, this::duplicateEmailOr)
+                .thenReturn(employee);
+    }
+
+    @Override
+    public Flux<Employee> findAll() {
+        return employeeRepository.findAllOrderedById();
+    }
+
+    @Override
+    public Flux<Map<String, Object>> findAll(Collection<String> fields) {
+        Set<String> selected = new LinkedHashSet<>(fields);
+        if (selected.isEmpty() || !EmployeeReactiveRepository.COLUMNS.keySet().containsAll(selected)) {
+            return Flux.error(new InvalidFieldsException("fields must be some of " + EmployeeReactiveRepository.COLUMNS.keySet()));
+        }
+        return employeeRepository.findAllFields(new ArrayList<>(selected));
+    }
+
+    @Override
+    public Mono<EmployeePage> findPage(long after, int limit) {
+        int size = Math.max(1, Math.min(limit, employeeProperties.getPage().getMaxLimit()));
+        //one extra row tells us whether there is a next page without a count query
+        return employeeRepository.findByIdGreaterThan(after, size + 1).collectList()
+                .map(employees -> employees.size() <= size
+                        ? new EmployeePage(employees, null)
+                        : new EmployeePage(employees.subList(0, size), employees.get(size - 1).getId()));
+    }
+
+    //no EmployeeCache on this stack, the ids go out as where id in (...) in chunks of employee.lookup.chunk-size
+    @Override
+    public Mono<EmployeeLookup> findAllById(List<Long> ids) {
+        EmployeeProperties.Lookup settings = employeeProperties.getLookup();
+        if (ids.size() > settings.getMaxIds()) {
+            return Mono.error(new TooManyIdsException("at most " + settings.getMaxIds() + " ids per lookup"));
+        }
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        return Flux.fromIterable(requested)
+                .buffer(settings.getChunkSize())
+                .concatMap(employeeRepository::findAllByIdIn)
+                .collectMap(Employee::getId)
+                .map(found -> {
+                    List<Employee> employees = new ArrayList<>(found.size());
+                    List<Long> missing = new ArrayList<>();
+                    for (Long id : requested) {
+                        Employee employee = found.get(id);
+                        if (employee != null) {
+                            employees.add(employee);
+                        } else {
+                            missing.add(id);
+                        }
+                    }
+                    return new EmployeeLookup(employees, missing);
+                });
+    }
+
+    @Override
+    public Mono<Employee> findById(Long id) {
+        return employeeRepository.findById(id);
+    }
+
+    @Override
+    public Mono<Employee> update(Employee employee) {
+        if (employee.getId() == null) {
+            return Mono.error(new ResourceNotFoundException("the employee not found"));
+        }
+        Mono<Integer> update = employee.getVersion() == null
+                ? employeeRepository.updateById(employee)
+                : employeeRepository.updateByIdAndVersion(employee);
+        return outboxRepository.nextId()
+                .flatMap(outboxId -> update
+                        .flatMap(updated -> {
+                            if (updated == 0) {
+                                return notFoundOrModified(employee.getId(), employee.getVersion());
+                            }
+                            //an unconditional update reads back the version it wrote, the row stays locked until commit
+                            Mono<Void> version = employee.getVersion() == null
+                                    ? employeeRepository.findVersionById(employee.getId()).doOnNext(employee::setVersion).then()
+                                    : Mono.fromRunnable(() -> employee.setVersion(employee.getVersion() + 1));
+                            return version.then(Mono.defer(() -> record(outboxId, EmployeeChangedEvent.updated(employee))));
+                        })
+                        .as(transactionalOperator::transactional))
+                .onErrorMap(DataIntegrityViolationException.class, this::duplicateEmailOr)
+                .thenReturn(employee);
+    }
+
+    @Override
+    public Mono<Void> delete(Long id) {
+        return outboxRepository.nextId()
+                .flatMap(outboxId -> employeeRepository.removeById(id)
+                        .flatMap(removed -> removed == 0
+                                ? Mono.<Void>error(new ResourceNotFoundException("the employee not found"))
+                                : record(outboxId, EmployeeChangedEvent.deleted(id)))
+                        .as(transactionalOperator::transactional));
+    }
+
+    @Override
+    public Mono<Void> delete(Long id, Long version) {
+        return outboxRepository.nextId()
+                .flatMap(outboxId -> employeeRepository.removeByIdAndVersion(id, version)
+                        .flatMap(removed -> removed == 0
+                                ? this.<Void>notFoundOrModified(id, version)
+                                : record(outboxId, EmployeeChangedEvent.deleted(id)))
+                        .as(transactionalOperator::transactional));
+    }
+
+    //the same row EmployeeChangeServiceImpl.record writes, so the relay and the cache invalidators see these changes too.
+    //no node id, the caches on this node did not see the write either and its own invalidator has to evict it as well
+    private Mono<Void> record(Long outboxId, EmployeeChangedEvent event) {
+        String payload;
+        try {
+            payload = event.getEmployee() == null ? null : objectMapper.writeValueAsString(event.getEmployee());
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        return outboxRepository.insert(EmployeeOutboxEvent.builder()
+                .id(outboxId)
+                .type(event.getType())
+                .employeeId(event.getId())
+                .payload(payload)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    private Throwable duplicateEmailOr(DataIntegrityViolationException e) {
+        //the driver message names the violated constraint, in upper case on h2
+        String message = e.getMostSpecificCause().getMessage();
+        if (message != null && message.toLowerCase(Locale.ROOT).contains(Employee.EMAIL_CONSTRAINT)) {
+            return new ResourceAlreadyExistsException("the employee has already exists!!!", e);
+        }
+        return e;
+    }
+
+    private <T> Mono<T> notFoundOrModified(Long id, Long version) {
+        if (version == null) {
+            return Mono.error(new ResourceNotFoundException("the employee not found"));
+        }
+        return employeeRepository.existsById(id).flatMap(exists -> Mono.error(exists
+                ? new PreconditionFailedException("the employee has been modified")
+                : new ResourceNotFoundException("the employee not found")));
+    }
+}
@@ -1,56 +1,448 @@
 package com.jalian.springboottesting.service.impl;
 
+import com.jalian.springboottesting.cache.EmployeeCache;
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.config.EmployeeRoutingDataSource;
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.dto.EmployeeBulkResult;
+import com.jalian.springboottesting.dto.EmployeeBulkUpdate;
+import com.jalian.springboottesting.dto.EmployeeLookup;
+import com.jalian.springboottesting.dto.EmployeePage;
+import com.jalian.springboottesting.event.EmployeeChangedEvent;
+import com.jalian.springboottesting.exception.InvalidFieldsException;
+import com.jalian.springboottesting.exception.PreconditionFailedException;
+import com.jalian.springboottesting.exception.ResourceAlreadyExistsException;
 import com.jalian.springboottesting.exception.ResourceNotFoundException;
+import com.jalian.springboottesting.exception.TooManyIdsException;
+import com.jalian.springboottesting.lookup.EmployeeBatchLoader;
 import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.replica.EmployeeReplica;
 import com.jalian.springboottesting.repository.EmployeeRepository;
+import com.jalian.springboottesting.search.EmployeeSearchIndex;
 import com.jalian.springboottesting.service.EmployeeService;
+import io.micrometer.core.annotation.Timed;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
+@Timed("employee.service") //one timer per method, tagged with class, method and exception
 public class EmployeeServiceImpl implements EmployeeService {
 
+    //columns a caller may ask for with ?fields=
+    private static final Set<String> FIELDS = new LinkedHashSet<>(Arrays.asList("id", "firstName", "lastName", "email", "version"));
+
     private final EmployeeRepository employeeRepository;
 
+    private final EmployeeProperties employeeProperties;
+
+    private final EmployeeCache employeeCache;
+
+    private final EmployeeSearchIndex employeeSearchIndex;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final EmployeeReplica employeeReplica;
+
+    private final EmployeeBatchLoader batchLoader;
+
+    private final TransactionTemplate transactionTemplate;
+
     @Autowired
-    public EmployeeServiceImpl(EmployeeRepository employeeRepository) {
+    public EmployeeServiceImpl(EmployeeRepository employeeRepository, EmployeeProperties employeeProperties,
+                               EmployeeCache employeeCache, EmployeeSearchIndex employeeSearchIndex,
+                               ApplicationEventPublisher eventPublisher, EmployeeReplica employeeReplica,
+                               PlatformTransactionManager transactionManager) {
         this.employeeRepository = employeeRepository;
+        this.employeeProperties = employeeProperties;
+        this.employeeCache = employeeCache;
+        this.employeeSearchIndex = employeeSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.employeeReplica = employeeReplica;
+        this.batchLoader = new EmployeeBatchLoader(employeeRepository, employeeProperties.getLookup());
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
     public Employee save(Employee employee) {
-        Employee savedEmployee = employeeRepository.findByEmail(employee.getEmail());
-        if(savedEmployee != null) {
-            throw new ResourceNotFoundException("the employee has already exists!!!");
+        if (employeeCache.getByEmail(employee.getEmail()).isPresent()) {
+            throw new ResourceAlreadyExistsException("the employee has already exists!!!");
         }
-        return employeeRepository.save(employee);
+        //no select before the insert, the unique constraint decides and cannot race
+        Employee createdEmployee;
+        try {
+            createdEmployee = employeeRepository.saveAndFlush(employee);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateEmailOr(e);
+        }
+        employeeCache.put(createdEmployee);
+        eventPublisher.publishEvent(EmployeeChangedEvent.saved(createdEmployee));
+        return createdEmployee;
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) //every chunk commits on its own
+    public List<EmployeeBatchResult> saveAll(List<Employee> employees) {
+        EmployeeBatchResult[] results = new EmployeeBatchResult[employees.size()];
+        Set<String> seenEmails = new HashSet<>();
+        int chunkSize = employeeProperties.getBatch().getChunkSize();
+        for (int from = 0; from < employees.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, employees.size());
+            //keyed by lower case email, mysql compares emails case insensitively
+            Map<String, Integer> candidates = new LinkedHashMap<>();
+            for (int index = from; index < to; index++) {
+                Employee employee = employees.get(index);
+                String invalid = validate(employee);
+                if (invalid != null) {
+                    results[index] = EmployeeBatchResult.invalid(index, invalid);
+                } else if (!seenEmails.add(employee.getEmail().toLowerCase(Locale.ROOT))) {
+                    results[index] = EmployeeBatchResult.duplicate(index);
+                } else {
+                    candidates.put(employee.getEmail().toLowerCase(Locale.ROOT), index);
+                }
+            }
+            if (candidates.isEmpty()) {
+                continue;
+            }
+            List<Integer> inserted;
+            try {
+                inserted = insertChunk(employees, candidates, results);
+            } catch (DataIntegrityViolationException e) {
+                //a concurrent create took an email after the check, one row per transaction finds the loser
+                inserted = new ArrayList<>();
+                for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+                    try {
+                        inserted.addAll(insertChunk(employees, Collections.singletonMap(candidate.getKey(), candidate.getValue()), results));
+                    } catch (DataIntegrityViolationException rowFailure) {
+                        RuntimeException failure = duplicateEmailOr(rowFailure);
+                        if (!(failure instanceof ResourceAlreadyExistsException)) {
+                            throw failure;
+                        }
+                        results[candidate.getValue()] = EmployeeBatchResult.duplicate(candidate.getValue());
+                    }
+                }
+            }
+            for (Integer index : inserted) {
+                results[index] = EmployeeBatchResult.created(index, employees.get(index).getId());
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    //one transaction: the duplicate check, the batched insert and the outbox rows. existing emails are marked in
+    //results, the inserted indexes are returned once committed
+    private List<Integer> insertChunk(List<Employee> employees, Map<String, Integer> candidates, EmployeeBatchResult[] results) {
+        return transactionTemplate.execute(status -> {
+            Map<String, Integer> remaining = new LinkedHashMap<>(candidates);
+            List<String> emails = new ArrayList<>();
+            remaining.values().forEach(index -> emails.add(employees.get(index).getEmail()));
+            for (String existingEmail : employeeRepository.findEmailsIn(emails)) {
+                Integer index = remaining.remove(existingEmail.toLowerCase(Locale.ROOT));
+                if (index != null) {
+                    results[index] = EmployeeBatchResult.duplicate(index);
+                }
+            }
+            List<Employee> inserts = new ArrayList<>(remaining.size());
+            for (Integer index : remaining.values()) {
+                Employee employee = employees.get(index);
+                //also undoes what a rolled back attempt assigned
+                employee.setId(null);
+                employee.setVersion(null);
+                inserts.add(employee);
+            }
+            employeeRepository.insertAll(inserts);
+            for (Integer index : remaining.values()) {
+                eventPublisher.publishEvent(EmployeeChangedEvent.saved(employees.get(index)));
+            }
+            return new ArrayList<>(remaining.values());
+        });
+    }
+
+    private String validate(Employee employee) {
+        if (employee == null) {
+            return "the employee is required";
+        }
+        if (isBlank(employee.getFirstName())) {
+            return "firstName is required";
+        }
+        if (isBlank(employee.getLastName())) {
+            return "lastName is required";
+        }
+        if (isBlank(employee.getEmail())) {
+            return "email is required";
+        }
+        return null;
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<Employee> findAll() {
         return employeeRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findAll(Collection<String> fields) {
+        Set<String> selected = new LinkedHashSet<>(fields);
+        if (selected.isEmpty() || !FIELDS.containsAll(selected)) {
+            throw new InvalidFieldsException("fields must be some of " + FIELDS);
+        }
+        return employeeRepository.findAllFields(new ArrayList<>(selected));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public EmployeePage findPage(long after, int limit) {
+        int size = Math.max(1, Math.min(limit, employeeProperties.getPage().getMaxLimit()));
+        //one extra row tells us whether there is a next page without a count query
+        List<Employee> employees = employeeRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, size + 1));
+        if (employees.size() <= size) {
+            return new EmployeePage(employees, null);
+        }
+        List<Employee> page = employees.subList(0, size);
+        return new EmployeePage(page, page.get(size - 1).getId());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) //served from memory, no connection needed
+    public List<Employee> search(String query, int limit) {
+        return employeeSearchIndex.search(query, Math.max(1, Math.min(limit, employeeProperties.getPage().getMaxLimit())));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEach(Consumer<Employee> action) {
+        employeeRepository.forEachOrderedById(action);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachRow(Consumer<Employee> action) {
+        employeeRepository.forEachRowOrderedById(action);
+    }
+
     @Override
     public Employee update(Employee employee) {
-        if(employee.getId() == null || !employeeRepository.findById(employee.getId()).isPresent()) {
-            throw new RuntimeException("the employee not found");
+        if(employee.getId() == null) {
+            throw new ResourceNotFoundException("the employee not found");
+        }
+        Employee existing = lockForWrite(employee.getId(), employee.getVersion());
+        existing.setFirstName(employee.getFirstName());
+        existing.setLastName(employee.getLastName());
+        existing.setEmail(employee.getEmail());
+        //flushed here so a taken email is reported as such, and the version is the one that was written
+        try {
+            employeeRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateEmailOr(e);
         }
-        return employeeRepository.save(employee);
+        employeeCache.evict(existing.getId());
+        eventPublisher.publishEvent(EmployeeChangedEvent.updated(existing));
+        return existing;
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) //the batch loader reads in a transaction of its own
     public Optional<Employee> findById(Long id) {
-        return employeeRepository.findById(id);
+        Optional<Employee> replicated = employeeReplica.get(id);
+        if (replicated.isPresent()) {
+            return replicated;
+        }
+        //the invalidator drops employees any node changed, the next read puts them back
+        Optional<Employee> employee = employeeCache.get(id);
+        if (!employee.isPresent()) {
+            long loadedAt = employeeCache.generation();
+            employee = batchLoader.load(id);
+            employee.ifPresent(loaded -> employeeCache.put(loaded, loadedAt));
+        }
+        return employee;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public EmployeeLookup findAllById(List<Long> ids) {
+        EmployeeProperties.Lookup settings = employeeProperties.getLookup();
+        if (ids.size() > settings.getMaxIds()) {
+            throw new TooManyIdsException("at most " + settings.getMaxIds() + " ids per lookup");
+        }
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        Map<Long, Employee> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : requested) {
+            Optional<Employee> cached = employeeCache.get(id);
+            if (cached.isPresent()) {
+                found.put(id, cached.get());
+            } else {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            //cached below, a lagging replica must not be the source
+            long loadedAt = employeeCache.generation();
+            List<Employee> loaded = EmployeeRoutingDataSource.onPrimary(
+                    () -> employeeRepository.findAllByIdInOrder(misses, settings.getChunkSize()));
+            for (Employee employee : loaded) {
+                if (employee != null) {
+                    found.put(employee.getId(), employee);
+                    employeeCache.put(employee, loadedAt);
+                }
+            }
+        }
+        List<Employee> employees = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            Employee employee = found.get(id);
+            if (employee != null) {
+                employees.add(employee);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new EmployeeLookup(employees, missing);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Employee> findByEmail(String email) {
+        Optional<Employee> replicated = employeeReplica.getByEmail(email);
+        if (replicated.isPresent()) {
+            return replicated;
+        }
+        Optional<Employee> cached = employeeCache.getByEmail(email);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        long loadedAt = employeeCache.generation();
+        Optional<Employee> employee = Optional.ofNullable(
+                EmployeeRoutingDataSource.onPrimary(() -> employeeRepository.findByEmail(email)));
+        employee.ifPresent(loaded -> employeeCache.put(loaded, loadedAt));
+        return employee;
     }
 
     @Override
     public void delete(Long id) {
-        employeeRepository.deleteById(id);
+        delete(id, null);
+    }
+
+    @Override
+    public void delete(Long id, Long version) {
+        employeeRepository.delete(lockForWrite(id, version));
+        employeeCache.evict(id);
+        eventPublisher.publishEvent(EmployeeChangedEvent.deleted(id));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) //every chunk commits on its own
+    public EmployeeBulkResult updateAll(EmployeeBulkUpdate update) {
+        if (update.getFirstName() == null && update.getLastName() == null) {
+            throw new InvalidFieldsException("firstName or lastName is required");
+        }
+        if ((update.getFirstName() != null && isBlank(update.getFirstName()))
+                || (update.getLastName() != null && isBlank(update.getLastName()))) {
+            throw new InvalidFieldsException("firstName and lastName must not be blank");
+        }
+        List<Long> ids = distinctIds(update.getIds());
+        int chunkSize = employeeProperties.getBatch().getChunkSize();
+        int affected = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            affected += transactionTemplate.execute(status -> {
+                int updated = employeeRepository.updateNamesByIdIn(chunk, update.getFirstName(), update.getLastName());
+                if (updated == 0) {
+                    return 0;
+                }
+                //the update cleared the persistence context, events go out afterwards so their outbox rows are not dropped
+                for (Employee employee : employeeRepository.findAllByIdInOrder(chunk, chunkSize)) {
+                    if (employee != null) {
+                        employeeCache.evict(employee.getId());
+                        eventPublisher.publishEvent(EmployeeChangedEvent.updated(employee));
+                    }
+                }
+                return updated;
+            });
+        }
+        return new EmployeeBulkResult(ids.size(), affected);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) //every chunk commits on its own
+    public EmployeeBulkResult deleteAll(List<Long> ids) {
+        List<Long> distinct = distinctIds(ids);
+        int chunkSize = employeeProperties.getBatch().getChunkSize();
+        int affected = 0;
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+            affected += transactionTemplate.execute(status -> {
+                List<Long> existing = employeeRepository.findIdsInForUpdate(chunk);
+                if (existing.isEmpty()) {
+                    return 0;
+                }
+                int removed = employeeRepository.removeByIdIn(existing);
+                for (Long id : existing) {
+                    employeeCache.evict(id);
+                    eventPublisher.publishEvent(EmployeeChangedEvent.deleted(id));
+                }
+                return removed;
+            });
+        }
+        return new EmployeeBulkResult(distinct.size(), affected);
+    }
+
+    private static List<Long> distinctIds(List<Long> ids) {
+        if (ids == null) {
+            return new ArrayList<>();
+        }
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        return new ArrayList<>(distinct);
+    }
+
+    private RuntimeException duplicateEmailOr(DataIntegrityViolationException e) {
+        if (e.getCause() instanceof ConstraintViolationException) {
+            String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+            //mysql reports the bare name, h2 an upper cased description that contains it
+            if (constraintName != null && constraintName.toLowerCase(Locale.ROOT).contains(Employee.EMAIL_CONSTRAINT)) {
+                return new ResourceAlreadyExistsException("the employee has already exists!!!", e);
+            }
+        }
+        return e;
+    }
+
+    //a null version writes whatever the employee holds now
+    private Employee lockForWrite(Long id, Long version) {
+        Employee existing = employeeRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResourceNotFoundException("the employee not found"));
+        if (version != null && !version.equals(existing.getVersion())) {
+            throw new PreconditionFailedException("the employee has been modified");
+        }
+        return existing;
     }
 }
@@ -0,0 +1,114 @@
+package com.jalian.springboottesting.service.impl;
+
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.dto.EmployeeWrite;
+import com.jalian.springboottesting.exception.InvalidFieldsException;
+import com.jalian.springboottesting.exception.ResourceAlreadyExistsException;
+import com.jalian.springboottesting.exception.WritePendingException;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeService;
+import com.jalian.springboottesting.service.EmployeeWriteBehindService;
+import com.jalian.springboottesting.writebehind.EmployeeWriteQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+//deliberately not @Transactional, a caller waiting for its group must not hold a connection. the groups commit
+//through EmployeeService.saveAll on the queue's writer thread
+@Service
+public class EmployeeWriteBehindServiceImpl implements EmployeeWriteBehindService {
+
+    //null while disabled
+    private final EmployeeWriteQueue queue;
+
+    private final Duration waitTimeout;
+
+    @Autowired
+    public EmployeeWriteBehindServiceImpl(EmployeeService employeeService, EmployeeProperties employeeProperties) {
+        EmployeeProperties.WriteBehind settings = employeeProperties.getWriteBehind();
+        this.queue = settings.isEnabled() ? new EmployeeWriteQueue(employeeService::saveAll, settings) : null;
+        this.waitTimeout = settings.getWaitTimeout();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return queue != null;
+    }
+
+    @Override
+    public Employee save(Employee employee) {
+        EmployeeBatchResult result = join(queue().submit(employee, false));
+        switch (result.getStatus()) {
+            case CREATED:
+                return employee;
+            case DUPLICATE:
+                throw new ResourceAlreadyExistsException(result.getMessage());
+            default:
+                throw new InvalidFieldsException(result.getMessage());
+        }
+    }
+
+    @Override
+    public EmployeeWrite submit(Employee employee) {
+        return queue().submit(employee, true).snapshot();
+    }
+
+    @Override
+    public Optional<EmployeeWrite> findWrite(long id) {
+        return queue == null ? Optional.empty() : queue.find(id);
+    }
+
+    @Override
+    public boolean isWriterAlive() {
+        return queue != null && queue.isWriterAlive();
+    }
+
+    @Override
+    public int queued() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    private EmployeeWriteQueue queue() {
+        if (queue == null) {
+            throw new IllegalStateException("employee.write-behind.enabled is false");
+        }
+        return queue;
+    }
+
+    //waits at most employee.write-behind.wait-timeout, after that the write is tracked and the caller answers 202
+    private EmployeeBatchResult join(EmployeeWriteQueue.Write write) {
+        try {
+            return write.getResult().get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (queue.track(write)) {
+                throw new WritePendingException(write.snapshot());
+            }
+            return join(write);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.jalian.springboottesting.startup;
+
+import com.jalian.springboottesting.migration.SchemaMetadata;
+import com.jalian.springboottesting.model.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+//creates and updates count on uk_employee_email to report duplicates, without it they would silently store a second
+//employee with the same email. ddl-auto only logs when it cannot add the constraint, so the server refuses to start
+@Component
+public class EmployeeSchemaCheck {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    //only here so ddl-auto and flyway have run before check
+    @Autowired
+    public EmployeeSchemaCheck(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void check() {
+        Boolean unique = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                SchemaMetadata.hasUniqueIndexOn(connection, "employee", "email"));
+        if (!Boolean.TRUE.equals(unique)) {
+            throw new IllegalStateException("employee.email has no unique constraint, add " + Employee.EMAIL_CONSTRAINT
+                    + " (the fast-startup profile's V4 migration reports the duplicates that keep it out)");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.jalian.springboottesting.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+//employee ids used to come from IDENTITY. on a database from those days employee_seq starts at 1 and hibernate
+//would hand out ids that are already taken, so before the server takes requests the sequence is moved past max(id)
+@Slf4j
+@Component
+public class EmployeeSequenceSeeder {
+
+    //allocationSize of employee_seq, the sequence value is the top of a block
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    //only here so the schema exists before seed runs
+    @Autowired
+    public EmployeeSequenceSeeder(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void seed() {
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from employee", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        long next = maxId + ALLOCATION_SIZE;
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if ("MySQL".equalsIgnoreCase(database)) {
+            //no sequences in mysql, hibernate keeps next_val in a table
+            if (jdbcTemplate.update("update employee_seq set next_val = ? where next_val < ?", next, next) > 0) {
+                log.info("employee_seq moved to {} past the existing employees", next);
+            }
+            return;
+        }
+        //takes one block to look at the sequence, a behind sequence restarts after the existing employees
+        Long value = jdbcTemplate.queryForObject("select next value for employee_seq", Long.class);
+        if (value != null && value - ALLOCATION_SIZE < maxId) {
+            jdbcTemplate.execute("alter sequence employee_seq restart with " + next);
+            log.info("employee_seq moved to {} past the existing employees", next);
+        }
+    }
+}
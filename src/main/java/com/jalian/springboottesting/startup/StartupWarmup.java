@@ -0,0 +1,109 @@
+package com.jalian.springboottesting.startup;
+
+import com.jalian.springboottesting.cache.EmployeeCache;
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.config.EmployeeRoutingDataSource;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.repository.EmployeeRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//part of the readiness group, out of service until every pool holds its minimum idle connections and the first
+//employees are in the second level cache and EmployeeCache
+@Slf4j
+@Component("startupWarmup")
+public class StartupWarmup implements HealthIndicator {
+
+    private final List<HikariDataSource> pools;
+
+    private final EmployeeRepository employeeRepository;
+
+    private final EmployeeCache employeeCache;
+
+    private final EmployeeProperties.Startup settings;
+
+    private final ConfigurableApplicationContext context;
+
+    private volatile boolean warm;
+
+    @Autowired
+    public StartupWarmup(List<HikariDataSource> pools, EmployeeRepository employeeRepository, EmployeeCache employeeCache,
+                         EmployeeProperties employeeProperties, ConfigurableApplicationContext context) {
+        this.pools = pools;
+        this.employeeRepository = employeeRepository;
+        this.employeeCache = employeeCache;
+        this.settings = employeeProperties.getStartup();
+        this.context = context;
+    }
+
+    //after the other ready listeners such as the search index rebuild, on a thread of its own so liveness is
+    //reported while readiness waits
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onReady() {
+        Thread thread = new Thread(this::warmUp, "employee-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Health health() {
+        return warm ? Health.up().build() : Health.outOfService().build();
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    private void warmUp() {
+        long started = System.nanoTime();
+        try {
+            for (HikariDataSource pool : pools) {
+                fill(pool);
+            }
+            long loadedAt = employeeCache.generation();
+            List<Employee> employees = EmployeeRoutingDataSource.onPrimary(() -> employeeRepository.findByIdGreaterThanOrderByIdAsc(
+                    0L, PageRequest.of(0, Math.max(1, settings.getWarmUpEmployees()))));
+            employees.forEach(employee -> employeeCache.put(employee, loadedAt));
+            warm = true;
+            log.info("warmed up {} pools and {} employees in {} ms", pools.size(), employees.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (SQLException | RuntimeException e) {
+            log.error("warm-up failed, readiness stays out of service", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (settings.isExitWhenReady()) {
+            System.exit(SpringApplication.exit(context, () -> warm ? 0 : 1));
+        }
+    }
+
+    private void fill(HikariDataSource pool) throws SQLException, InterruptedException {
+        //borrowing one connection starts a lazily created pool
+        try (Connection connection = pool.getConnection()) {
+            connection.isValid(1);
+        }
+        HikariPoolMXBean poolBean = pool.getHikariPoolMXBean();
+        long deadline = System.nanoTime() + settings.getPoolTimeout().toNanos();
+        while (poolBean.getTotalConnections() < pool.getMinimumIdle() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
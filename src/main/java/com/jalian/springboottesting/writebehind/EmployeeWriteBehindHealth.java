@@ -0,0 +1,28 @@
+package com.jalian.springboottesting.writebehind;
+
+import com.jalian.springboottesting.service.EmployeeWriteBehindService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+//part of the liveness group, a dead writer thread leaves every queued create waiting and only a restart helps
+@Component("employeeWriteBehind")
+public class EmployeeWriteBehindHealth implements HealthIndicator {
+
+    private final EmployeeWriteBehindService employeeWriteBehindService;
+
+    @Autowired
+    public EmployeeWriteBehindHealth(EmployeeWriteBehindService employeeWriteBehindService) {
+        this.employeeWriteBehindService = employeeWriteBehindService;
+    }
+
+    @Override
+    public Health health() {
+        if (!employeeWriteBehindService.isEnabled()) {
+            return Health.up().withDetail("enabled", false).build();
+        }
+        Health.Builder health = employeeWriteBehindService.isWriterAlive() ? Health.up() : Health.down();
+        return health.withDetail("queued", employeeWriteBehindService.queued()).build();
+    }
+}
@@ -0,0 +1,260 @@
+package com.jalian.springboottesting.writebehind;
+
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.dto.EmployeeWrite;
+import com.jalian.springboottesting.exception.WriteQueueFullException;
+import com.jalian.springboottesting.model.Employee;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+//creates are queued without a lock and written by one thread. whatever queued up while the previous group was
+//committing becomes the next group, one saveAll call with one duplicate check, one batched insert and one commit.
+//nothing here is durable before that commit
+@Slf4j
+public class EmployeeWriteQueue {
+
+    //how long the idle writer sleeps before it looks at the queue again, a submit wakes it earlier
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Function<List<Employee>, List<EmployeeBatchResult>> saveAll;
+
+    private final EmployeeProperties.WriteBehind settings;
+
+    private final ConcurrentLinkedQueue<Write> queue = new ConcurrentLinkedQueue<>();
+
+    //reserved before an offer, so the queue never holds more than the capacity
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    //tracked writes only, pending ones and the last employee.write-behind.retained-writes finished ones
+    private final Map<Long, Write> writes = new ConcurrentHashMap<>();
+
+    //owned by the writer thread
+    private final ArrayDeque<Long> finished = new ArrayDeque<>();
+
+    private final Thread writer;
+
+    private volatile boolean accepting = true;
+
+    private volatile boolean idle;
+
+    public EmployeeWriteQueue(Function<List<Employee>, List<EmployeeBatchResult>> saveAll,
+                              EmployeeProperties.WriteBehind settings) {
+        this.saveAll = saveAll;
+        this.settings = settings;
+        this.writer = new Thread(this::run, "employee-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    //tracked writes can be looked up by id until they are evicted
+    public Write submit(Employee employee, boolean tracked) {
+        if (!accepting) {
+            throw new WriteQueueFullException("the write queue is shutting down");
+        }
+        if (size.incrementAndGet() > settings.getCapacity()) {
+            size.decrementAndGet();
+            throw new WriteQueueFullException("the write queue is full");
+        }
+        Write write = new Write(sequence.incrementAndGet(), employee);
+        if (tracked) {
+            writes.put(write.id, write);
+        }
+        queue.offer(write);
+        //the writer sets idle before it looks at the queue a last time, so one of us sees the other
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+        return write;
+    }
+
+    //for a caller that stopped waiting on an untracked write, its status can be looked up from now on. false if it
+    //finished in the meantime, the result is there to take
+    public boolean track(Write write) {
+        writes.put(write.id, write);
+        if (write.result.isDone()) {
+            writes.remove(write.id);
+            return false;
+        }
+        return true;
+    }
+
+    public Optional<EmployeeWrite> find(long id) {
+        return Optional.ofNullable(writes.get(id)).map(Write::snapshot);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isWriterAlive() {
+        return writer.isAlive();
+    }
+
+    //stops accepting and waits for what is queued to commit, anything left after the timeout is lost
+    public void shutdown() throws InterruptedException {
+        accepting = false;
+        LockSupport.unpark(writer);
+        writer.join(settings.getShutdownTimeout().toMillis());
+        if (writer.isAlive()) {
+            log.warn("{} queued employees were not written before shutdown", size.get());
+            writer.interrupt();
+        }
+    }
+
+    private void run() {
+        List<Write> group = new ArrayList<>(settings.getMaxBatchSize());
+        while (true) {
+            Write write;
+            while (group.size() < settings.getMaxBatchSize() && (write = queue.poll()) != null) {
+                group.add(write);
+            }
+            if (!group.isEmpty()) {
+                size.addAndGet(-group.size());
+                commit(group);
+                group.clear();
+                continue;
+            }
+            if (!accepting && queue.isEmpty()) {
+                return;
+            }
+            idle = true;
+            if (queue.isEmpty() && accepting) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            idle = false;
+            if (Thread.interrupted()) {
+                abandon();
+                return;
+            }
+        }
+    }
+
+    //the shutdown timed out, callers still waiting get an answer instead of blocking forever
+    private void abandon() {
+        Write write;
+        while ((write = queue.poll()) != null) {
+            write.fail(new WriteQueueFullException("the write queue was shut down before the employee was written"));
+        }
+    }
+
+    private void commit(List<Write> group) {
+        List<Employee> employees = new ArrayList<>(group.size());
+        group.forEach(write -> employees.add(write.employee));
+        try {
+            List<EmployeeBatchResult> results = saveAll.apply(employees);
+            for (int i = 0; i < group.size(); i++) {
+                complete(group.get(i), results.get(i));
+            }
+        } catch (RuntimeException e) {
+            //the group rolled back, one bad row must not fail the others, so retry row by row
+            for (Write write : group) {
+                try {
+                    complete(write, saveAll.apply(Collections.singletonList(write.employee)).get(0));
+                } catch (RuntimeException | Error rowFailure) {
+                    log.warn("could not write employee {}", write.employee.getEmail(), rowFailure);
+                    fail(write, rowFailure);
+                }
+            }
+        } catch (Error e) {
+            //fails the group but not the writer, the queue behind it would never drain
+            log.error("could not write a group of {} employees", group.size(), e);
+            group.forEach(write -> fail(write, e));
+        }
+    }
+
+    //retained before the caller wakes up, so whoever waited on the result sees the evictions it caused
+    private void complete(Write write, EmployeeBatchResult result) {
+        boolean retained = retain(write);
+        write.complete(result);
+        //a caller that stopped waiting may have started tracking it in between
+        if (!retained) {
+            retain(write);
+        }
+    }
+
+    private void fail(Write write, Throwable failure) {
+        boolean retained = retain(write);
+        write.fail(failure);
+        if (!retained) {
+            retain(write);
+        }
+    }
+
+    private boolean retain(Write write) {
+        if (!writes.containsKey(write.id)) {
+            return false;
+        }
+        finished.add(write.id);
+        while (finished.size() > settings.getRetainedWrites()) {
+            writes.remove(finished.poll());
+        }
+        return true;
+    }
+
+    public static final class Write {
+
+        private final long id;
+
+        private final Employee employee;
+
+        private final Instant acceptedAt = Instant.now();
+
+        private final CompletableFuture<EmployeeBatchResult> result = new CompletableFuture<>();
+
+        private volatile Instant committedAt;
+
+        private Write(long id, Employee employee) {
+            this.id = id;
+            this.employee = employee;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        //completes once the group has committed, or exceptionally if the employee could not be written
+        public CompletableFuture<EmployeeBatchResult> getResult() {
+            return result;
+        }
+
+        private void complete(EmployeeBatchResult batchResult) {
+            committedAt = Instant.now();
+            result.complete(batchResult);
+        }
+
+        private void fail(Throwable failure) {
+            result.completeExceptionally(failure);
+        }
+
+        public EmployeeWrite snapshot() {
+            if (!result.isDone()) {
+                return new EmployeeWrite(id, EmployeeWrite.Status.PENDING, acceptedAt, null, null, null);
+            }
+            if (result.isCompletedExceptionally()) {
+                return new EmployeeWrite(id, EmployeeWrite.Status.FAILED, acceptedAt, null, null,
+                        "the employee could not be saved");
+            }
+            EmployeeBatchResult batchResult = result.join();
+            return new EmployeeWrite(id, EmployeeWrite.Status.valueOf(batchResult.getStatus().name()), acceptedAt,
+                    committedAt, batchResult.getId(), batchResult.getMessage());
+        }
+    }
+}
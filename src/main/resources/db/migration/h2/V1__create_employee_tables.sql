@@ -0,0 +1,8 @@
+create table employee (id bigint not null, email varchar(255) not null, first_name varchar(255) not null, last_name varchar(255) not null, version bigint not null, primary key (id));
+create sequence employee_seq start with 1 increment by 50;
+create index idx_employee_name on employee (first_name, last_name);
+alter table employee add constraint uk_employee_email unique (email);
+
+create table employee_outbox (id bigint not null, created_at timestamp not null, employee_id bigint not null, payload varchar(4000), relay_position bigint, type varchar(16) not null, primary key (id));
+create sequence employee_outbox_seq start with 1 increment by 50;
+alter table employee_outbox add constraint uk_employee_outbox_position unique (relay_position);
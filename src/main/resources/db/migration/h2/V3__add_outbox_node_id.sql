@@ -0,0 +1 @@
+alter table employee_outbox add column node_id varchar(64);
@@ -0,0 +1,10 @@
+create table employee (id bigint not null, email varchar(255) not null, first_name varchar(255) not null, last_name varchar(255) not null, version bigint not null, primary key (id)) engine=InnoDB;
+create table employee_seq (next_val bigint) engine=InnoDB;
+insert into employee_seq values (1);
+create index idx_employee_name on employee (first_name, last_name);
+alter table employee add constraint uk_employee_email unique (email);
+
+create table employee_outbox (id bigint not null, created_at datetime(6) not null, employee_id bigint not null, payload varchar(4000), relay_position bigint, type varchar(16) not null, primary key (id)) engine=InnoDB;
+create table employee_outbox_seq (next_val bigint) engine=InnoDB;
+insert into employee_outbox_seq values (1);
+alter table employee_outbox add constraint uk_employee_outbox_position unique (relay_position);
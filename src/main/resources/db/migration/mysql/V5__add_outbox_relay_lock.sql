@@ -0,0 +1,2 @@
+create table if not exists employee_outbox_relay_lock (id bigint not null, primary key (id)) engine=InnoDB;
+insert ignore into employee_outbox_relay_lock values (1);
@@ -0,0 +1,130 @@
+package com.jalian.springboottesting.cache;
+
+import com.jalian.springboottesting.SpringBootTestingApplication;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.repository.EmployeeRepository;
+import com.jalian.springboottesting.search.EmployeeSearchIndex;
+import com.jalian.springboottesting.service.EmployeeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//two nodes in one jvm, each with its own second level cache, sharing one database
+public class EmployeeSecondLevelCacheTest {
+
+    private static ConfigurableApplicationContext first;
+
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void start() {
+        first = start("create-drop");
+        second = start("none");
+    }
+
+    @AfterAll
+    static void stop() {
+        second.close();
+        first.close();
+    }
+
+    @Test
+    void entityCacheTest() throws InterruptedException {
+        Employee employee = first.getBean(EmployeeService.class)
+                .save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        EmployeeRepository repository = second.getBean(EmployeeRepository.class);
+        repository.findById(employee.getId());
+        repository.findById(employee.getId());
+        assertThat(cached(second, employee.getId())).isTrue();
+        assertThat(second.getBean(MeterRegistry.class).get("hibernate.second.level.cache.requests")
+                .tag("region", Employee.CACHE_REGION).tag("result", "hit").functionCounter().count()).isPositive();
+
+        employee.setFirstName("amir");
+        first.getBean(EmployeeService.class).update(employee);
+        await(() -> !cached(second, employee.getId()));
+        assertThat(repository.findById(employee.getId())).get().extracting(Employee::getFirstName).isEqualTo("amir");
+    }
+
+    //the writer keeps its other entries and the new state of the one it wrote, the invalidator skips its own changes
+    @Test
+    void writerKeepsItsEntriesTest() throws InterruptedException {
+        EmployeeService service = first.getBean(EmployeeService.class);
+        Employee employee = service.save(Employee.builder().firstName("taylor").lastName("swift").email("taylor@gmail.com").build());
+        Employee other = service.save(Employee.builder().firstName("selena").lastName("gomez").email("selena@gmail.com").build());
+        EmployeeRepository repository = second.getBean(EmployeeRepository.class);
+        repository.findById(employee.getId());
+        first.getBean(EmployeeRepository.class).findById(other.getId());
+        assertThat(cached(first, other.getId())).isTrue();
+
+        employee.setFirstName("tay");
+        service.update(employee);
+        await(() -> !cached(second, employee.getId()));
+        first.getBean(EmployeeCacheInvalidator.class).follow();
+
+        assertThat(cached(first, other.getId())).isTrue();
+        assertThat(cached(first, employee.getId())).isTrue();
+    }
+
+    @Test
+    void queryCacheTest() throws InterruptedException {
+        Employee employee = first.getBean(EmployeeService.class)
+                .save(Employee.builder().firstName("robyn").lastName("fenty").email("rihanna@gmail.com").build());
+        EmployeeRepository repository = second.getBean(EmployeeRepository.class);
+        assertThat(repository.findByEmail("rihanna@gmail.com")).isNotNull();
+        assertThat(repository.findByFirstNameAndLastName("robyn", "fenty")).isNotNull();
+        assertThat(repository.findByEmail("rihanna@gmail.com")).isNotNull();
+        assertThat(second.getBean(MeterRegistry.class).get("hibernate.cache.query.requests")
+                .tag("result", "hit").functionCounter().count()).isPositive();
+
+        employee.setEmail("robyn@gmail.com");
+        first.getBean(EmployeeService.class).update(employee);
+        await(() -> repository.findByEmail("rihanna@gmail.com") == null);
+        assertThat(repository.findByEmail("robyn@gmail.com")).isNotNull();
+    }
+
+    @Test
+    void remoteWritesAreSearchableTest() throws InterruptedException {
+        EmployeeService service = first.getBean(EmployeeService.class);
+        EmployeeSearchIndex index = second.getBean(EmployeeSearchIndex.class);
+        Employee employee = service.save(Employee.builder().firstName("beyonce").lastName("knowles").email("queen@gmail.com").build());
+        await(() -> !index.search("beyonce", 10).isEmpty());
+
+        employee.setLastName("carter");
+        service.update(employee);
+        await(() -> !index.search("carter", 10).isEmpty());
+        assertThat(index.search("knowles", 10)).isEmpty();
+
+        service.delete(employee.getId());
+        await(() -> index.search("beyonce", 10).isEmpty());
+    }
+
+    private static boolean cached(ConfigurableApplicationContext context, Long id) {
+        return context.getBean(EntityManagerFactory.class).getCache().contains(Employee.class, id);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("waited for the other node").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String ddlAuto) {
+        return new SpringApplicationBuilder(SpringBootTestingApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:second-level;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=" + ddlAuto);
+    }
+}
@@ -0,0 +1,156 @@
+package com.jalian.springboottesting.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.cache.EmployeeCache;
+import com.jalian.springboottesting.cache.EmployeeCacheInvalidator;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeChangeService;
+import com.jalian.springboottesting.service.EmployeeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//two h2 databases without replication between them, so every row tells which one served it
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "employee.datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1;INIT=CREATE TABLE IF NOT EXISTS employee "
+                + "(id BIGINT PRIMARY KEY, first_name VARCHAR(255), last_name VARCHAR(255), email VARCHAR(255), version BIGINT)",
+        "employee.datasource.replica.username=sa",
+        "employee.datasource.replica.password="
+})
+@AutoConfigureMockMvc
+public class DataSourceRoutingTest {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EmployeeChangeService employeeChangeService;
+
+    @Autowired
+    private EmployeeCacheInvalidator employeeCacheInvalidator;
+
+    private JdbcTemplate primary;
+
+    private JdbcTemplate replica;
+
+    @Autowired
+    void setDataSources(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                        @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+    }
+
+    @BeforeEach
+    void setup() {
+        replica.update("insert into employee values (1000, 'replica', 'row', 'replica@gmail.com', 0)");
+    }
+
+    @AfterEach
+    void cleanup() {
+        primary.update("delete from employee");
+        replica.update("delete from employee");
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void writesGoToPrimaryTest() {
+        employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        assertThat(primary.queryForObject("select count(*) from employee", Integer.class)).isEqualTo(1);
+        assertThat(replica.queryForObject("select count(*) from employee where email = 'aj@gmail.com'", Integer.class)).isZero();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplicaTest() {
+        double replicaConnections = meterRegistry.get("employee.datasource.routing").tag("target", "replica").functionCounter().count();
+        employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        assertThat(employeeService.findAll()).extracting(Employee::getFirstName).containsExactly("replica");
+        assertThat(meterRegistry.get("employee.datasource.routing").tag("target", "replica").functionCounter().count())
+                .isGreaterThan(replicaConnections);
+        assertThat(meterRegistry.get("hikaricp.connections").tag("pool", "replica").gauge()).isNotNull();
+        assertThat(meterRegistry.get("hikaricp.connections").tag("pool", "primary").gauge()).isNotNull();
+    }
+
+    @Test
+    void readsAfterWriteStickToPrimaryTest() throws Exception {
+        Employee employee = Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build();
+        Cookie lastWrite = mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(employee)))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists(ReadYourWritesFilter.LAST_WRITE_COOKIE))
+                .andReturn().getResponse().getCookie(ReadYourWritesFilter.LAST_WRITE_COOKIE);
+
+        mockMvc.perform(get("/api/employees").cookie(lastWrite))
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].firstName", is("amirhosein")));
+        mockMvc.perform(get("/api/employees"))
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].firstName", is("replica")));
+        mockMvc.perform(get("/api/employees").cookie(new Cookie(ReadYourWritesFilter.LAST_WRITE_COOKIE,
+                        Long.toString(System.currentTimeMillis() - 60000))))
+                .andExpect(jsonPath("$[0].firstName", is("replica")));
+    }
+
+    //the replica still has the row from before the update. a client without the cookie may read it there, but it
+    //must not reach EmployeeCache or the second level cache, from where it would outlive the lag
+    @Test
+    void laggingReplicaIsNeverCachedTest() throws Exception {
+        long position = employeeChangeService.lastPosition();
+        Employee employee = employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        replica.update("insert into employee values (?, 'amirhosein', 'jalian', 'aj@gmail.com', 0)", employee.getId());
+        employeeService.update(Employee.builder().id(employee.getId()).firstName("amir").lastName("jalian").email("aj@gmail.com").build());
+        //the update is relayed and followed before the reads, they cannot race the invalidator
+        long deadline = System.currentTimeMillis() + 5000;
+        while (employeeChangeService.lastPosition() < position + 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        employeeCacheInvalidator.follow();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+
+        mockMvc.perform(get("/api/employees"))
+                .andExpect(jsonPath("$[?(@.email == 'aj@gmail.com')].firstName", hasItem("amirhosein")));
+        mockMvc.perform(get("/api/employees/{id}", employee.getId()))
+                .andExpect(jsonPath("$.firstName", is("amir")));
+        mockMvc.perform(get("/api/employees").param("ids", employee.getId().toString()))
+                .andExpect(jsonPath("$.employees[0].firstName", is("amir")));
+        assertThat(employeeService.findByEmail("aj@gmail.com")).get().extracting(Employee::getFirstName).isEqualTo("amir");
+        assertThat(cacheManager.getCache(EmployeeCache.EMPLOYEES).get(employee.getId(), Employee.class))
+                .extracting(Employee::getFirstName).isEqualTo("amir");
+    }
+}
@@ -0,0 +1,59 @@
+package com.jalian.springboottesting.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DataSourceSettingsValidatorTest {
+
+    private DataSourceSettingsValidator validator;
+
+    private HikariDataSource hikari;
+
+    @BeforeEach
+    void setup() {
+        validator = new DataSourceSettingsValidator(Collections.emptyList(), 50);
+        hikari = new HikariDataSource();
+        hikari.setMaximumPoolSize(20);
+        hikari.setMinimumIdle(20);
+    }
+
+    @Test
+    void tunedMysqlSettingsTest() {
+        hikari.setJdbcUrl("jdbc:mysql://localhost:3306/spring_boot_testing?useSSL=false&rewriteBatchedStatements=true");
+        hikari.addDataSourceProperty("cachePrepStmts", "true");
+        hikari.addDataSourceProperty("prepStmtCacheSize", "250");
+        hikari.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        hikari.addDataSourceProperty("useServerPrepStmts", "true");
+        assertThat(validator.check(hikari)).isEmpty();
+    }
+
+    @Test
+    void defaultMysqlSettingsTest() {
+        hikari.setJdbcUrl("jdbc:mysql://localhost:3306/spring_boot_testing?useSSL=false");
+        hikari.setMinimumIdle(5);
+        List<String> warnings = validator.check(hikari);
+        assertThat(warnings).hasSize(4);
+        assertThat(warnings).anyMatch(warning -> warning.startsWith("minimum-idle"));
+        assertThat(warnings).anyMatch(warning -> warning.startsWith("rewriteBatchedStatements"));
+    }
+
+    @Test
+    void smallStatementCacheTest() {
+        hikari.setJdbcUrl("jdbc:mysql://localhost:3306/spring_boot_testing?cachePrepStmts=true&useServerPrepStmts=true");
+        List<String> warnings = validator.check(hikari);
+        assertThat(warnings).anyMatch(warning -> warning.startsWith("prepStmtCacheSize"));
+        assertThat(warnings).anyMatch(warning -> warning.startsWith("prepStmtCacheSqlLimit"));
+    }
+
+    @Test
+    void otherDatabaseTest() {
+        hikari.setJdbcUrl("jdbc:h2:mem:test");
+        assertThat(validator.check(hikari)).isEmpty();
+    }
+}
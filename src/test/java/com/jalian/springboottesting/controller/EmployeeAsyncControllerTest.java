@@ -0,0 +1,168 @@
+package com.jalian.springboottesting.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.dto.EmployeeLookup;
+import com.jalian.springboottesting.exception.InvalidFieldsException;
+import com.jalian.springboottesting.exception.ResourceNotFoundException;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.outbox.EmployeeChangeRelay;
+import com.jalian.springboottesting.service.EmployeeImportService;
+import com.jalian.springboottesting.service.EmployeeService;
+import com.jalian.springboottesting.service.EmployeeWriteBehindService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(properties = "employee.async.enabled=true")
+public class EmployeeAsyncControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private EmployeeService employeeService;
+
+    @MockBean
+    private EmployeeImportService employeeImportService;
+
+    @MockBean
+    private EmployeeWriteBehindService employeeWriteBehindService;
+
+    @MockBean
+    private EmployeeChangeRelay employeeChangeRelay;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void createEmployeeTest() throws Exception {
+        Employee employee = Employee.builder()
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build();
+        given(employeeService.save(any(Employee.class))).willAnswer(
+                (invocationOnMock -> invocationOnMock.getArgument(0)));
+        MvcResult mvcResult = mockMvc.perform(post("/api/async/employees").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(employee)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.email", is(employee.getEmail())));
+    }
+
+    @Test
+    void findByIdEmployeeTest() throws Exception {
+        Employee employee = Employee.builder()
+                .id(1L)
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .version(2L)
+                .build();
+        given(employeeService.findById(1L)).willReturn(Optional.of(employee));
+        MvcResult mvcResult = mockMvc.perform(get("/api/async/employees/{id}", 1L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"2\""))
+                .andExpect(jsonPath("$.firstName", is(employee.getFirstName())))
+                .andDo(print());
+    }
+
+    @Test
+    void findByIdEmployeeTestRunsOnAsyncExecutor() throws Exception {
+        AtomicReference<String> thread = new AtomicReference<>();
+        given(employeeService.findById(1L)).willAnswer(invocationOnMock -> {
+            thread.set(Thread.currentThread().getName());
+            return Optional.empty();
+        });
+        MvcResult mvcResult = mockMvc.perform(get("/api/async/employees/{id}", 1L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotFound());
+        assertThat(thread.get()).startsWith("employee-async-");
+    }
+
+    @Test
+    void findByIdEmployeeTestThrowsException() throws Exception {
+        given(employeeService.findById(1L)).willReturn(Optional.empty());
+        MvcResult mvcResult = mockMvc.perform(get("/api/async/employees/{id}", 1L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deleteEmployeeTestThrowsException() throws Exception {
+        willThrow(new ResourceNotFoundException("the employee not found")).given(employeeService).delete(1L);
+        MvcResult mvcResult = mockMvc.perform(delete("/api/async/employees/{id}", 1L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void findAllByIdEmployeeTest() throws Exception {
+        Employee employee = Employee.builder().id(2L).firstName("robyn").lastName("fenty").email("rihanna@gmail.com").build();
+        given(employeeService.findAllById(Arrays.asList(3L, 2L)))
+                .willReturn(new EmployeeLookup(Arrays.asList(employee), Arrays.asList(3L)));
+        MvcResult mvcResult = mockMvc.perform(get("/api/async/employees").param("ids", "3,2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.employees[0].email", is("rihanna@gmail.com")))
+                .andExpect(jsonPath("$.missing[0]", is(3)));
+    }
+
+    @Test
+    void findAllFieldsEmployeeTest() throws Exception {
+        given(employeeService.findAll(Arrays.asList("id", "email")))
+                .willReturn(Collections.singletonList(Collections.singletonMap("email", "aj@gmail.com")));
+        MvcResult mvcResult = mockMvc.perform(get("/api/async/employees").param("fields", "id,email"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email", is("aj@gmail.com")))
+                .andExpect(jsonPath("$[0].firstName").doesNotExist());
+    }
+
+    @Test
+    void findAllUnknownFieldsEmployeeTest() throws Exception {
+        given(employeeService.findAll(Arrays.asList("salary"))).willThrow(new InvalidFieldsException("fields must be some of [id]"));
+        MvcResult mvcResult = mockMvc.perform(get("/api/async/employees").param("fields", "salary"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -1,27 +1,60 @@
 package com.jalian.springboottesting.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.dto.EmployeeBulkResult;
+import com.jalian.springboottesting.dto.EmployeeLookup;
+import com.jalian.springboottesting.dto.EmployeePage;
+import com.jalian.springboottesting.dto.EmployeeWrite;
+import com.jalian.springboottesting.exception.InvalidFieldsException;
+import com.jalian.springboottesting.exception.PreconditionFailedException;
+import com.jalian.springboottesting.exception.ResourceAlreadyExistsException;
+import com.jalian.springboottesting.exception.ResourceNotFoundException;
+import com.jalian.springboottesting.exception.TooManyIdsException;
+import com.jalian.springboottesting.exception.WriteQueueFullException;
 import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.outbox.EmployeeChangeRelay;
+import com.jalian.springboottesting.service.EmployeeImportService;
 import com.jalian.springboottesting.service.EmployeeService;
+import com.jalian.springboottesting.service.EmployeeWriteBehindService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest
@@ -33,9 +66,22 @@ public class EmployeeControllerTest {
     @MockBean
     private EmployeeService employeeService;
 
+    @MockBean
+    private EmployeeImportService employeeImportService;
+
+    @MockBean
+    private EmployeeWriteBehindService employeeWriteBehindService;
+
+    @MockBean
+    private EmployeeChangeRelay employeeChangeRelay;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
     @Test
     void createEmployeeTest() throws Exception {
         Employee employee = Employee.builder()
@@ -56,6 +102,140 @@ public class EmployeeControllerTest {
 
     }
 
+    @Test
+    void createEmployeeTestConflict() throws Exception {
+        Employee employee = Employee.builder()
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build();
+        given(employeeService.save(any(Employee.class))).willThrow(new ResourceAlreadyExistsException("the employee has already exists!!!"));
+        ResultActions response = mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(employee)));
+
+        response.andExpect(status().isConflict());
+    }
+
+    @Test
+    void createEmployeeTestWriteBehind() throws Exception {
+        Employee employee = Employee.builder()
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build();
+        given(employeeWriteBehindService.isEnabled()).willReturn(true);
+        given(employeeWriteBehindService.save(any(Employee.class))).willAnswer(invocationOnMock -> {
+            Employee saved = invocationOnMock.getArgument(0);
+            saved.setId(1L);
+            return saved;
+        });
+        ResultActions response = mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+                .header("Prefer", "return=representation")
+                .content(objectMapper.writeValueAsString(employee)));
+
+        response.andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id", is(1)));
+        verify(employeeService, never()).save(any(Employee.class));
+    }
+
+    @Test
+    void createEmployeeTestRespondAsync() throws Exception {
+        Employee employee = Employee.builder()
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build();
+        given(employeeWriteBehindService.isEnabled()).willReturn(true);
+        given(employeeWriteBehindService.submit(any(Employee.class))).willReturn(
+                new EmployeeWrite(7L, EmployeeWrite.Status.PENDING, Instant.now(), null, null, null));
+        ResultActions response = mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+                .header("Prefer", "wait=5, Respond-Async")
+                .content(objectMapper.writeValueAsString(employee)));
+
+        response.andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/api/employees/writes/7"))
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.status", is("PENDING")));
+    }
+
+    //without write-behind the preference is ignored, as rfc 7240 allows
+    @Test
+    void createEmployeeTestRespondAsyncDisabled() throws Exception {
+        Employee employee = Employee.builder()
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build();
+        given(employeeService.save(any(Employee.class))).willAnswer(
+                (invocationOnMock -> invocationOnMock.getArgument(0)));
+        ResultActions response = mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+                .header("Prefer", "respond-async")
+                .content(objectMapper.writeValueAsString(employee)));
+
+        response.andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Preference-Applied"))
+                .andExpect(jsonPath("$.email", is(employee.getEmail())));
+        verify(employeeWriteBehindService, never()).submit(any(Employee.class));
+    }
+
+    @Test
+    void createEmployeeTestWriteQueueFull() throws Exception {
+        Employee employee = Employee.builder()
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build();
+        given(employeeWriteBehindService.isEnabled()).willReturn(true);
+        given(employeeWriteBehindService.submit(any(Employee.class))).willThrow(new WriteQueueFullException("the write queue is full"));
+        ResultActions response = mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
+                .header("Prefer", "respond-async")
+                .content(objectMapper.writeValueAsString(employee)));
+
+        response.andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    @Test
+    void findWriteTest() throws Exception {
+        given(employeeWriteBehindService.findWrite(7L)).willReturn(Optional.of(
+                new EmployeeWrite(7L, EmployeeWrite.Status.CREATED, Instant.now(), Instant.now(), 42L, null)));
+
+        mockMvc.perform(get("/api/employees/writes/{id}", 7L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("CREATED")))
+                .andExpect(jsonPath("$.employeeId", is(42)));
+        mockMvc.perform(get("/api/employees/writes/{id}", 8L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void createEmployeesTest() throws Exception {
+        List<Employee> employees = new ArrayList<>();
+        employees.add(Employee.builder()
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build());
+        employees.add(Employee.builder()
+                .firstName("robyn")
+                .lastName("fenty")
+                .email("aj@gmail.com")
+                .build());
+        List<EmployeeBatchResult> results = new ArrayList<>();
+        results.add(EmployeeBatchResult.created(0, 1L));
+        results.add(EmployeeBatchResult.duplicate(1));
+        given(employeeService.saveAll(anyList())).willReturn(results);
+        ResultActions response = mockMvc.perform(post("/api/employees/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(employees)));
+
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(2)))
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[1].status", is("DUPLICATE")))
+                .andDo(print());
+    }
+
     @Test
     void findAllEmployeeTest() throws Exception {
         List<Employee> employees = new ArrayList<>();
@@ -76,6 +256,257 @@ public class EmployeeControllerTest {
                 .andDo(print());
     }
 
+    @Test
+    void findAllSmileEmployeeTest() throws Exception {
+        List<Employee> employees = new ArrayList<>();
+        employees.add(Employee.builder()
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build());
+        employees.add(Employee.builder()
+                .firstName("robyn")
+                .lastName("fenty")
+                .email("rihanna@gmail.com")
+                .build());
+        given(employeeService.findAll()).willReturn(employees);
+        MvcResult result = mockMvc.perform(get("/api/employees").accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn();
+        Employee[] body = smileMapper.readValue(result.getResponse().getContentAsByteArray(), Employee[].class);
+        assertThat(body).extracting(Employee::getEmail).containsExactly("aj@gmail.com", "rihanna@gmail.com");
+    }
+
+    @Test
+    void findAllAnyAcceptEmployeeTestIsJson() throws Exception {
+        given(employeeService.findAll()).willReturn(new ArrayList<>());
+        mockMvc.perform(get("/api/employees").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void createEmployeeSmileTest() throws Exception {
+        Employee employee = Employee.builder()
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build();
+        given(employeeService.save(any(Employee.class))).willAnswer(
+                (invocationOnMock -> invocationOnMock.getArgument(0)));
+        ResultActions response = mockMvc.perform(post("/api/employees").contentType(SMILE)
+                .content(smileMapper.writeValueAsBytes(employee)));
+
+        response.andExpect(status().isCreated())
+                .andExpect(jsonPath("$.email", is(employee.getEmail())));
+    }
+
+    @Test
+    void findAllFieldsEmployeeTest() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1L);
+        row.put("email", "aj@gmail.com");
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(row);
+        given(employeeService.findAll(Arrays.asList("id", "email"))).willReturn(rows);
+        ResultActions resultActions = mockMvc.perform(get("/api/employees").param("fields", "id,email"));
+        resultActions.andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].email", is("aj@gmail.com")))
+                .andExpect(jsonPath("$[0].firstName").doesNotExist());
+    }
+
+    @Test
+    void findAllUnknownFieldsEmployeeTest() throws Exception {
+        given(employeeService.findAll(Arrays.asList("salary"))).willThrow(new InvalidFieldsException("fields must be some of [id]"));
+        ResultActions resultActions = mockMvc.perform(get("/api/employees").param("fields", "salary"));
+        resultActions.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findAllByIdEmployeeTest() throws Exception {
+        Employee employee = Employee.builder().id(2L).firstName("robyn").lastName("fenty").email("rihanna@gmail.com").build();
+        given(employeeService.findAllById(Arrays.asList(3L, 2L)))
+                .willReturn(new EmployeeLookup(Arrays.asList(employee), Arrays.asList(3L)));
+        ResultActions resultActions = mockMvc.perform(get("/api/employees").param("ids", "3,2"));
+        resultActions.andExpect(status().isOk())
+                .andExpect(jsonPath("$.employees.size()", is(1)))
+                .andExpect(jsonPath("$.employees[0].email", is("rihanna@gmail.com")))
+                .andExpect(jsonPath("$.missing[0]", is(3)))
+                .andDo(print());
+    }
+
+    @Test
+    void lookupEmployeeTest() throws Exception {
+        given(employeeService.findAllById(Arrays.asList(1L, 2L)))
+                .willReturn(new EmployeeLookup(new ArrayList<>(), Arrays.asList(1L, 2L)));
+        ResultActions resultActions = mockMvc.perform(post("/api/employees/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1,2]"));
+        resultActions.andExpect(status().isOk())
+                .andExpect(jsonPath("$.employees.size()", is(0)))
+                .andExpect(jsonPath("$.missing.size()", is(2)))
+                .andDo(print());
+    }
+
+    @Test
+    void lookupEmployeeTestTooManyIds() throws Exception {
+        given(employeeService.findAllById(anyList())).willThrow(new TooManyIdsException("at most 1000 ids per lookup"));
+        mockMvc.perform(post("/api/employees/lookup").contentType(MediaType.APPLICATION_JSON).content("[1,2]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void updateEmployeesTest() throws Exception {
+        given(employeeService.updateAll(argThat(update -> update.getIds().equals(Arrays.asList(1L, 2L))
+                && "amir".equals(update.getFirstName()) && update.getLastName() == null)))
+                .willReturn(new EmployeeBulkResult(2, 1));
+        ResultActions resultActions = mockMvc.perform(patch("/api/employees/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[1,2],\"firstName\":\"amir\"}"));
+        resultActions.andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested", is(2)))
+                .andExpect(jsonPath("$.affected", is(1)))
+                .andDo(print());
+    }
+
+    @Test
+    void deleteEmployeesTest() throws Exception {
+        given(employeeService.deleteAll(Arrays.asList(1L, 2L, 3L))).willReturn(new EmployeeBulkResult(3, 3));
+        ResultActions resultActions = mockMvc.perform(delete("/api/employees/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1,2,3]"));
+        resultActions.andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected", is(3)))
+                .andDo(print());
+    }
+
+    @Test
+    void findPageEmployeeTest() throws Exception {
+        List<Employee> employees = new ArrayList<>();
+        employees.add(Employee.builder()
+                .id(11L)
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build());
+        given(employeeService.findPage(10L, 1)).willReturn(new EmployeePage(employees, 11L));
+        ResultActions resultActions = mockMvc.perform(get("/api/employees")
+                .param("after", "10")
+                .param("limit", "1"));
+        resultActions.andExpect(status().isOk())
+                .andExpect(jsonPath("$.employees.size()", is(1)))
+                .andExpect(jsonPath("$.nextAfter", is(11)))
+                .andDo(print());
+    }
+
+    @Test
+    void findLastPageEmployeeTest() throws Exception {
+        given(employeeService.findPage(0L, 50)).willReturn(new EmployeePage(new ArrayList<>(), null));
+        ResultActions resultActions = mockMvc.perform(get("/api/employees").param("limit", "50"));
+        resultActions.andExpect(status().isOk())
+                .andExpect(jsonPath("$.employees.size()", is(0)))
+                .andExpect(jsonPath("$.nextAfter", nullValue()));
+    }
+
+    @Test
+    void searchEmployeeTest() throws Exception {
+        List<Employee> employees = new ArrayList<>();
+        employees.add(Employee.builder()
+                .id(1L)
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build());
+        given(employeeService.search("amir jal", 10)).willReturn(employees);
+        ResultActions resultActions = mockMvc.perform(get("/api/employees/search").param("q", "amir jal"));
+        resultActions.andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].firstName", is("amirhosein")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamEmployeeTest() throws Exception {
+        List<Employee> employees = new ArrayList<>();
+        employees.add(Employee.builder()
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build());
+        employees.add(Employee.builder()
+                .firstName("robyn")
+                .lastName("fenty")
+                .email("rihanna@gmail.com")
+                .build());
+        willAnswer(invocationOnMock -> {
+            employees.forEach(invocationOnMock.<Consumer<Employee>>getArgument(0));
+            return null;
+        }).given(employeeService).forEach(any(Consumer.class));
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(employees.size())))
+                .andExpect(jsonPath("$[1].email", is("rihanna@gmail.com")))
+                .andDo(print());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportNdjsonEmployeeTest() throws Exception {
+        givenEmployeeRows();
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees/export").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1,\"firstName\":\"amirhosein\",\"lastName\":\"jalian\",\"email\":\"aj@gmail.com\",\"version\":0}\n"
+                        + "{\"id\":2,\"firstName\":\"robyn\",\"lastName\":\"fenty, rihanna\",\"email\":\"rihanna@gmail.com\",\"version\":3}\n"));
+    }
+
+    @Test
+    void exportCsvEmployeeTest() throws Exception {
+        givenEmployeeRows();
+        //the controller writes plain text whatever the client accepts, compression is server.compression's job
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees/export").accept("text/csv")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string("id,firstName,lastName,email,version\n"
+                        + "1,amirhosein,jalian,aj@gmail.com,0\n"
+                        + "2,robyn,\"fenty, rihanna\",rihanna@gmail.com,3\n"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenEmployeeRows() {
+        List<Employee> employees = new ArrayList<>();
+        employees.add(Employee.builder()
+                .id(1L)
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .version(0L)
+                .build());
+        employees.add(Employee.builder()
+                .id(2L)
+                .firstName("robyn")
+                .lastName("fenty, rihanna")
+                .email("rihanna@gmail.com")
+                .version(3L)
+                .build());
+        willAnswer(invocationOnMock -> {
+            employees.forEach(invocationOnMock.<Consumer<Employee>>getArgument(0));
+            return null;
+        }).given(employeeService).forEachRow(any(Consumer.class));
+    }
+
     @Test
     void findByIdEmployeeTest() throws Exception {
         Employee employee = Employee.builder()
@@ -92,6 +523,39 @@ public class EmployeeControllerTest {
                 .andExpect(jsonPath("$.email", is(employee.getEmail())));
     }
 
+    @Test
+    void findByIdEmployeeTestReturnsETag() throws Exception {
+        Employee employee = Employee.builder()
+                .id(1L)
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .version(3L)
+                .build();
+        given(employeeService.findById(1L)).willReturn(Optional.of(employee));
+        ResultActions resultActions = mockMvc.perform(get("/api/employees/{id}", 1L));
+        resultActions.andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"3\""))
+                .andExpect(header().string(HttpHeaders.VARY, "Accept"))
+                .andExpect(jsonPath("$.version", is(3)));
+    }
+
+    @Test
+    void findByIdEmployeeTestNotModified() throws Exception {
+        Employee employee = Employee.builder()
+                .id(1L)
+                .firstName("amirhosein")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .version(3L)
+                .build();
+        given(employeeService.findById(1L)).willReturn(Optional.of(employee));
+        ResultActions resultActions = mockMvc.perform(get("/api/employees/{id}", 1L)
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"3\""));
+        resultActions.andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test
     void findByIdEmployeeTestThrowsException() throws Exception {
         Employee employee = Employee.builder()
@@ -117,7 +581,6 @@ public class EmployeeControllerTest {
                 .lastName("jalian")
                 .email("aj2@gmail.com")
                 .build();
-        given(employeeService.findById(1L)).willReturn(Optional.of(savedEmployee));
         given(employeeService.update(any(Employee.class))).will(invocationOnMock -> invocationOnMock.getArgument(0));
         ResultActions resultActions = mockMvc.perform(put("/api/employees/{id}", 1L).contentType(MediaType.APPLICATION_JSON)
         .content(objectMapper.writeValueAsString(updatedEmployee)));
@@ -140,14 +603,56 @@ public class EmployeeControllerTest {
                 .lastName("jalian")
                 .email("aj2@gmail.com")
                 .build();
-        given(employeeService.findById(1L)).willReturn(Optional.empty());
-        given(employeeService.update(any(Employee.class))).will(invocationOnMock -> invocationOnMock.getArgument(0));
+        given(employeeService.update(any(Employee.class))).willThrow(new ResourceNotFoundException("the employee not found"));
         ResultActions resultActions = mockMvc.perform(put("/api/employees/{id}", 1L).contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(updatedEmployee)));
 
         resultActions.andExpect(status().isNotFound());
     }
 
+    @Test
+    void updateEmployeeTestWithIfMatch() throws Exception {
+        Employee updatedEmployee = Employee.builder()
+                .firstName("amirhosein2")
+                .lastName("jalian")
+                .email("aj2@gmail.com")
+                .build();
+        given(employeeService.update(argThat(employee -> employee.getId() == 1L && employee.getVersion() == 3L))).will(invocationOnMock -> {
+            Employee employee = invocationOnMock.getArgument(0);
+            employee.setVersion(employee.getVersion() + 1);
+            return employee;
+        });
+        ResultActions resultActions = mockMvc.perform(put("/api/employees/{id}", 1L).contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .content(objectMapper.writeValueAsString(updatedEmployee)));
+
+        resultActions.andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"4\""));
+    }
+
+    @Test
+    void updateEmployeeTestPreconditionFailed() throws Exception {
+        Employee updatedEmployee = Employee.builder()
+                .firstName("amirhosein2")
+                .lastName("jalian")
+                .email("aj2@gmail.com")
+                .build();
+        given(employeeService.update(any(Employee.class))).willThrow(new PreconditionFailedException("the employee has been modified"));
+        ResultActions resultActions = mockMvc.perform(put("/api/employees/{id}", 1L).contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .content(objectMapper.writeValueAsString(updatedEmployee)));
+
+        resultActions.andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void deleteEmployeeTestPreconditionFailed() throws Exception {
+        willThrow(new PreconditionFailedException("the employee has been modified")).given(employeeService).delete(1L, 2L);
+        ResultActions response = mockMvc.perform(delete("/api/employees/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "W/\"2\""));
+        response.andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     void deleteEmployeeTest() throws Exception {
         willDoNothing().given(employeeService).delete(1L);
@@ -155,4 +660,11 @@ public class EmployeeControllerTest {
         response.andExpect(status().isOk())
                 .andDo(print());
     }
+
+    @Test
+    void deleteEmployeeTestThrowsException() throws Exception {
+        willThrow(new ResourceNotFoundException("the employee not found")).given(employeeService).delete(1L);
+        ResultActions response = mockMvc.perform(delete("/api/employees/{id}", 1L));
+        response.andExpect(status().isNotFound());
+    }
 }
@@ -0,0 +1,68 @@
+package com.jalian.springboottesting.controller;
+
+import com.jalian.springboottesting.dto.EmployeeImportJob;
+import com.jalian.springboottesting.service.EmployeeImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(EmployeeImportController.class)
+public class EmployeeImportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private EmployeeImportService employeeImportService;
+
+    private final EmployeeImportJob job = new EmployeeImportJob(7L, EmployeeImportJob.Status.COMPLETED, Instant.now(),
+            Instant.now(), 2, 1, 1, Collections.singletonList(new EmployeeImportJob.Rejection(2, "malformed row")), null);
+
+    @Test
+    void importNdjsonEmployeesTest() throws Exception {
+        given(employeeImportService.importNdjson(any(InputStream.class))).willReturn(job);
+        mockMvc.perform(post("/api/employees/imports").contentType("application/x-ndjson")
+                        .content("{\"firstName\":\"amirhosein\",\"lastName\":\"jalian\",\"email\":\"aj@gmail.com\"}\n{"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/api/employees/imports/7"))
+                .andExpect(jsonPath("$.created", is(1)))
+                .andExpect(jsonPath("$.rejections[0].line", is(2)));
+    }
+
+    @Test
+    void importCsvEmployeesTest() throws Exception {
+        given(employeeImportService.importCsv(any(InputStream.class))).willReturn(job);
+        mockMvc.perform(post("/api/employees/imports").contentType("text/csv")
+                        .content("firstName,lastName,email\namirhosein,jalian,aj@gmail.com\n"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.status", is("COMPLETED")));
+    }
+
+    @Test
+    void findImportJobTest() throws Exception {
+        given(employeeImportService.findJob(7L)).willReturn(Optional.of(job));
+        given(employeeImportService.findJob(8L)).willReturn(Optional.empty());
+        mockMvc.perform(get("/api/employees/imports/{id}", 7L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows", is(2)));
+        mockMvc.perform(get("/api/employees/imports/{id}", 8L))
+                .andExpect(status().isNotFound());
+    }
+}
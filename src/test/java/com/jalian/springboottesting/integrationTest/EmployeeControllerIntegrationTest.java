@@ -1,66 +1,55 @@
 package com.jalian.springboottesting.integrationTest;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jalian.springboottesting.model.Employee;
 import com.jalian.springboottesting.repository.EmployeeRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.test.web.servlet.MockMvc;
-import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.reactive.server.WebTestClient;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
-import static org.hamcrest.CoreMatchers.is;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
-import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.assertj.core.api.Assertions.assertThat;
 
+//talks http to a running server, so the same cases run against the reactive stack in EmployeeReactiveControllerIntegrationTest
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
-@AutoConfigureMockMvc
 public class EmployeeControllerIntegrationTest {
 
     @Autowired
-    private MockMvc mockMvc;
+    private WebTestClient webTestClient;
 
     @Autowired
     private EmployeeRepository employeeRepository;
 
-    @Autowired
-    private ObjectMapper objectMapper;
-
     @BeforeEach
     void cleanUp() {
         employeeRepository.deleteAll();
     }
 
     @Test
-    void createEmployeeTest() throws Exception {
+    void createEmployeeTest() {
         Employee employee = Employee.builder()
                 .firstName("amirhosein")
                 .lastName("jalian")
                 .email("aj@gmail.com")
                 .build();
-        ResultActions response = mockMvc.perform(post("/api/employees").contentType(MediaType.APPLICATION_JSON)
-                .content(objectMapper.writeValueAsString(employee)));
-        response.andExpect(status().isCreated())
-                .andExpect(jsonPath("$.firstName", is(employee.getFirstName())))
-                .andExpect(jsonPath("$.lastName", is(employee.getLastName())))
-                .andExpect(jsonPath("$.email", is(employee.getEmail())));
+        webTestClient.post().uri("/api/employees").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo(employee.getFirstName())
+                .jsonPath("$.lastName").isEqualTo(employee.getLastName())
+                .jsonPath("$.email").isEqualTo(employee.getEmail());
 
     }
 
     @Test
-    void findAllEmployeeTest() throws Exception {
+    void findAllEmployeeTest() {
         List<Employee> employees = new ArrayList<>();
         employees.add(Employee.builder()
                 .firstName("amirhosein")
@@ -73,43 +62,46 @@ public class EmployeeControllerIntegrationTest {
                 .email("rihanna@gmail.com")
                 .build());
         employeeRepository.saveAll(employees);
-        ResultActions resultActions = mockMvc.perform(get("/api/employees"));
-        resultActions.andExpect(status().isOk())
-                .andExpect(jsonPath("$.size()", is(employees.size())))
-                .andDo(print());
+        webTestClient.get().uri("/api/employees")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.size()").isEqualTo(employees.size());
     }
 
     @Test
-    void findByIdEmployeeTest() throws Exception {
+    void findByIdEmployeeTest() {
         Employee employee = Employee.builder()
                 .firstName("amirhosein")
                 .lastName("jalian")
                 .email("aj@gmail.com")
                 .build();
         employeeRepository.save(employee);
-        ResultActions resultActions = mockMvc.perform(get("/api/employees/{id}", employee.getId()));
-        resultActions.andExpect(status().isOk())
-                .andDo(print())
-                .andExpect(jsonPath("$.firstName", is(employee.getFirstName())))
-                .andExpect(jsonPath("$.lastName", is(employee.getLastName())))
-                .andExpect(jsonPath("$.email", is(employee.getEmail())));
+        webTestClient.get().uri("/api/employees/{id}", employee.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo(employee.getFirstName())
+                .jsonPath("$.lastName").isEqualTo(employee.getLastName())
+                .jsonPath("$.email").isEqualTo(employee.getEmail());
     }
 
     @Test
-    void findByIdEmployeeTestThrowsException() throws Exception {
+    void findByIdEmployeeTestThrowsException() {
         Employee employee = Employee.builder()
                 .firstName("amirhosein")
                 .lastName("jalian")
                 .email("aj@gmail.com")
                 .build();
         employeeRepository.save(employee);
-        ResultActions resultActions = mockMvc.perform(get("/api/employees/{id}", 1L));
-        resultActions.andExpect(status().isNotFound())
-                .andDo(print());
+        //an id next to the saved one, on a fresh database the first employee gets id 1
+        webTestClient.get().uri("/api/employees/{id}", employee.getId() + 1)
+                .exchange()
+                .expectStatus().isNotFound();
     }
 
     @Test
-    void updateEmployeeTest() throws Exception {
+    void updateEmployeeTest() {
         Employee savedEmployee = Employee.builder()
                 .firstName("amirhosein")
                 .lastName("jalian")
@@ -121,17 +113,21 @@ public class EmployeeControllerIntegrationTest {
                 .email("aj2@gmail.com")
                 .build();
         employeeRepository.save(savedEmployee);
-        ResultActions resultActions = mockMvc.perform(put("/api/employees/{id}", savedEmployee.getId()).contentType(MediaType.APPLICATION_JSON)
-                .content(objectMapper.writeValueAsString(updatedEmployee)));
-
-        resultActions.andExpect(status().isOk())
-                .andExpect(jsonPath("$.firstName", is(updatedEmployee.getFirstName())))
-                .andExpect(jsonPath("$.lastName", is(updatedEmployee.getLastName())))
-                .andExpect(jsonPath("$.email", is(updatedEmployee.getEmail())));
+        //without If-Match too, the answer carries the version the update committed
+        webTestClient.put().uri("/api/employees/{id}", savedEmployee.getId()).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(updatedEmployee)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "W/\"" + (savedEmployee.getVersion() + 1) + "\"")
+                .expectBody()
+                .jsonPath("$.version").isEqualTo(savedEmployee.getVersion() + 1)
+                .jsonPath("$.firstName").isEqualTo(updatedEmployee.getFirstName())
+                .jsonPath("$.lastName").isEqualTo(updatedEmployee.getLastName())
+                .jsonPath("$.email").isEqualTo(updatedEmployee.getEmail());
     }
 
     @Test
-    void updateEmployeeTestThrowsException() throws Exception {
+    void updateEmployeeTestThrowsException() {
         Employee savedEmployee = Employee.builder()
                 .firstName("amirhosein")
                 .lastName("jalian")
@@ -143,22 +139,107 @@ public class EmployeeControllerIntegrationTest {
                 .email("aj2@gmail.com")
                 .build();
         employeeRepository.save(savedEmployee);
-        ResultActions resultActions = mockMvc.perform(put("/api/employees/{id}", 1L).contentType(MediaType.APPLICATION_JSON)
-                .content(objectMapper.writeValueAsString(updatedEmployee)));
-
-        resultActions.andExpect(status().isNotFound());
+        webTestClient.put().uri("/api/employees/{id}", savedEmployee.getId() + 1).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(updatedEmployee)
+                .exchange()
+                .expectStatus().isNotFound();
     }
 
     @Test
-    void deleteEmployeeTest() throws Exception {
+    void deleteEmployeeTest() {
         Employee savedEmployee = Employee.builder()
                 .firstName("amirhosein")
                 .lastName("jalian")
                 .email("aj@gmail.com")
                 .build();
         employeeRepository.save(savedEmployee);
-        ResultActions response = mockMvc.perform(delete("/api/employees/{id}", savedEmployee.getId()));
-        response.andExpect(status().isOk())
-                .andDo(print());
+        webTestClient.delete().uri("/api/employees/{id}", savedEmployee.getId())
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void findPageEmployeeTest() {
+        List<Employee> employees = saveThree();
+        webTestClient.get().uri("/api/employees?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.employees.size()").isEqualTo(2)
+                .jsonPath("$.nextAfter").isEqualTo(employees.get(1).getId());
+        webTestClient.get().uri("/api/employees?limit=2&after={after}", employees.get(1).getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.employees[0].email").isEqualTo(employees.get(2).getEmail())
+                .jsonPath("$.nextAfter").doesNotExist();
+    }
+
+    @Test
+    void findAllFieldsEmployeeTest() {
+        saveThree();
+        webTestClient.get().uri("/api/employees?fields=id,email")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.size()").isEqualTo(3)
+                .jsonPath("$[0].email").isEqualTo("aj@gmail.com")
+                .jsonPath("$[0].firstName").doesNotExist();
+        webTestClient.get().uri("/api/employees?fields=salary")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void findAllByIdEmployeeTest() {
+        List<Employee> employees = saveThree();
+        long missing = employees.get(2).getId() + 1;
+        webTestClient.get().uri("/api/employees?ids={first},{missing},{third}", employees.get(0).getId(), missing, employees.get(2).getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.employees.size()").isEqualTo(2)
+                .jsonPath("$.employees[0].email").isEqualTo("aj@gmail.com")
+                .jsonPath("$.employees[1].email").isEqualTo("taylor@gmail.com")
+                .jsonPath("$.missing[0]").isEqualTo(missing);
+        webTestClient.post().uri("/api/employees/lookup").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[" + employees.get(1).getId() + "]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.employees[0].email").isEqualTo("rihanna@gmail.com")
+                .jsonPath("$.missing.size()").isEqualTo(0);
+    }
+
+    @Test
+    void streamAndExportEmployeeTest() {
+        saveThree();
+        webTestClient.get().uri("/api/employees/stream")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.size()").isEqualTo(3);
+        String ndjson = webTestClient.get().uri("/api/employees/export").accept(MediaType.parseMediaType("application/x-ndjson"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(ndjson.split("\n")).hasSize(3).allMatch(line -> line.startsWith("{"));
+        String csv = webTestClient.get().uri("/api/employees/export").accept(MediaType.parseMediaType("text/csv"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(csv.split("\n")).hasSize(4).startsWith("id,firstName,lastName,email,version");
+    }
+
+    private List<Employee> saveThree() {
+        List<Employee> employees = new ArrayList<>();
+        employees.add(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        employees.add(Employee.builder().firstName("robyn").lastName("fenty").email("rihanna@gmail.com").build());
+        employees.add(Employee.builder().firstName("taylor").lastName("swift").email("taylor@gmail.com").build());
+        return employeeRepository.saveAll(employees);
     }
 }
@@ -0,0 +1,130 @@
+package com.jalian.springboottesting.integrationTest;
+
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.model.EmployeeOutboxEvent;
+import com.jalian.springboottesting.event.EmployeeChangedEvent;
+import com.jalian.springboottesting.repository.EmployeeOutboxRepository;
+import com.jalian.springboottesting.repository.EmployeeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//every case of EmployeeControllerIntegrationTest again, served by webflux and r2dbc on h2
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive?options=DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password="
+})
+@ActiveProfiles("reactive")
+public class EmployeeReactiveControllerIntegrationTest extends EmployeeControllerIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeOutboxRepository employeeOutboxRepository;
+
+    @Test
+    void findAllStreamsNdjsonTest() {
+        employeeRepository.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        employeeRepository.save(Employee.builder().firstName("robyn").lastName("fenty").email("rihanna@gmail.com").build());
+
+        List<Employee> employees = webTestClient.get().uri("/api/employees")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Employee.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertThat(employees).extracting(Employee::getEmail).containsExactly("aj@gmail.com", "rihanna@gmail.com");
+    }
+
+    @Test
+    void createEmployeeWithTakenEmailTest() {
+        employeeRepository.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+
+        webTestClient.post().uri("/api/employees").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Employee.builder().firstName("other").lastName("jalian").email("aj@gmail.com").build())
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void updateWithStaleVersionTest() {
+        Employee employee = employeeRepository.save(Employee.builder()
+                .firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        Employee updatedEmployee = Employee.builder().firstName("amirhosein2").lastName("jalian").email("aj2@gmail.com").build();
+
+        webTestClient.put().uri("/api/employees/{id}", employee.getId()).contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"" + employee.getVersion() + "\"")
+                .bodyValue(updatedEmployee)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "W/\"" + (employee.getVersion() + 1) + "\"");
+        webTestClient.put().uri("/api/employees/{id}", employee.getId()).contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"" + employee.getVersion() + "\"")
+                .bodyValue(updatedEmployee)
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    //ids from the reactive side continue hibernate's pooled blocks, and every write leaves its outbox row
+    @Test
+    void writesShareIdsAndOutboxWithJpaTest() {
+        Employee saved = employeeRepository.save(Employee.builder()
+                .firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        employeeOutboxRepository.deleteAll();
+
+        Employee created = webTestClient.post().uri("/api/employees").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Employee.builder().firstName("robyn").lastName("fenty").email("rihanna@gmail.com").build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Employee.class)
+                .returnResult()
+                .getResponseBody();
+        webTestClient.delete().uri("/api/employees/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk();
+
+        assertThat(created.getId()).isNotEqualTo(saved.getId());
+        assertThat(created.getVersion()).isEqualTo(0L);
+        List<EmployeeOutboxEvent> events = employeeOutboxRepository.findAll();
+        assertThat(events.stream().map(EmployeeOutboxEvent::getType).collect(Collectors.toList()))
+                .containsExactlyInAnyOrder(EmployeeChangedEvent.Type.SAVED, EmployeeChangedEvent.Type.DELETED);
+        assertThat(events).allMatch(event -> event.getEmployeeId().equals(created.getId()));
+        assertThat(events).filteredOn(event -> event.getType() == EmployeeChangedEvent.Type.SAVED)
+                .allMatch(event -> event.getPayload().contains("rihanna@gmail.com"));
+    }
+
+    @Test
+    void servletOnlyEndpointsTest() {
+        for (String uri : new String[]{"/api/employees/search?q=aj", "/api/employees/changes", "/api/employees/writes/1",
+                "/api/employees/imports"}) {
+            webTestClient.get().uri(uri).exchange().expectStatus().isEqualTo(501);
+        }
+        webTestClient.post().uri("/api/employees/batch").contentType(MediaType.APPLICATION_JSON).bodyValue("[]")
+                .exchange().expectStatus().isEqualTo(501);
+        webTestClient.patch().uri("/api/employees/batch").contentType(MediaType.APPLICATION_JSON).bodyValue("{}")
+                .exchange().expectStatus().isEqualTo(501);
+        webTestClient.delete().uri("/api/employees/batch").exchange().expectStatus().isEqualTo(501);
+    }
+}
@@ -0,0 +1,107 @@
+package com.jalian.springboottesting.lookup;
+
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.config.EmployeeRoutingDataSource;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.repository.EmployeeRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class EmployeeBatchLoaderTest {
+
+    private final EmployeeRepository employeeRepository = mock(EmployeeRepository.class);
+
+    private final EmployeeProperties.Lookup settings = new EmployeeProperties.Lookup();
+
+    @Test
+    void concurrentLookupsShareOneQueryTest() throws Exception {
+        settings.setCoalesceWindow(Duration.ofSeconds(5));
+        settings.setMaxBatchSize(3);
+        EmployeeBatchLoader loader = new EmployeeBatchLoader(employeeRepository, settings);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(employee(1L));
+        }).given(employeeRepository).findById(1L);
+        willAnswer(invocation -> invocation.<List<Long>>getArgument(0).stream()
+                .map(id -> id == 4L ? null : employee(id))
+                .collect(Collectors.toList()))
+                .given(employeeRepository).findAllByIdInOrder(anyList(), anyInt());
+
+        //the first lookup runs alone and keeps the others waiting for a batch of three
+        CompletableFuture<Optional<Employee>> first = CompletableFuture.supplyAsync(() -> loader.load(1L));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        List<CompletableFuture<Optional<Employee>>> others = Arrays.asList(2L, 3L, 4L).stream()
+                .map(id -> CompletableFuture.supplyAsync(() -> loader.load(id)))
+                .collect(Collectors.toList());
+        for (CompletableFuture<Optional<Employee>> other : others) {
+            other.get(5, TimeUnit.SECONDS);
+        }
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).map(Employee::getId).contains(1L);
+        assertThat(others.get(0).get()).map(Employee::getId).contains(2L);
+        assertThat(others.get(1).get()).map(Employee::getId).contains(3L);
+        assertThat(others.get(2).get()).isEmpty();
+        verify(employeeRepository, times(1)).findAllByIdInOrder(anyList(), anyInt());
+    }
+
+    @Test
+    void lookupAloneDoesNotWaitTest() {
+        settings.setCoalesceWindow(Duration.ofSeconds(5));
+        EmployeeBatchLoader loader = new EmployeeBatchLoader(employeeRepository, settings);
+        given(employeeRepository.findById(1L)).willReturn(Optional.of(employee(1L)));
+
+        long start = System.nanoTime();
+        assertThat(loader.load(1L)).map(Employee::getId).contains(1L);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        verify(employeeRepository, never()).findAllByIdInOrder(anyList(), anyInt());
+    }
+
+    //the results end up in the cache, so they must not come from a lagging replica
+    @Test
+    void queriesGoToPrimaryTest() throws Exception {
+        settings.setCoalesceWindow(Duration.ofSeconds(5));
+        settings.setMaxBatchSize(2);
+        EmployeeBatchLoader loader = new EmployeeBatchLoader(employeeRepository, settings);
+        willAnswer(invocation -> invocation.<List<Long>>getArgument(0).stream()
+                .map(id -> EmployeeRoutingDataSource.isStuckToPrimary() ? employee(id) : null)
+                .collect(Collectors.toList()))
+                .given(employeeRepository).findAllByIdInOrder(anyList(), anyInt());
+        given(employeeRepository.findById(anyLong())).willAnswer(invocation -> Optional.ofNullable(
+                EmployeeRoutingDataSource.isStuckToPrimary() ? employee(invocation.getArgument(0)) : null));
+
+        CompletableFuture<Optional<Employee>> first = CompletableFuture.supplyAsync(() -> loader.load(1L));
+        CompletableFuture<Optional<Employee>> second = CompletableFuture.supplyAsync(() -> loader.load(2L));
+        assertThat(first.get(5, TimeUnit.SECONDS)).isPresent();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isPresent();
+        settings.setCoalesceWindow(Duration.ZERO);
+        assertThat(loader.load(3L)).isPresent();
+        assertThat(EmployeeRoutingDataSource.isStuckToPrimary()).isFalse();
+    }
+
+    private static Employee employee(Long id) {
+        return Employee.builder().id(id).firstName("amirhosein").lastName("jalian").email("aj" + id + "@gmail.com").build();
+    }
+}
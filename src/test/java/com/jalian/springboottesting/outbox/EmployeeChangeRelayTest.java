@@ -0,0 +1,190 @@
+package com.jalian.springboottesting.outbox;
+
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.dto.EmployeeBulkUpdate;
+import com.jalian.springboottesting.exception.ResourceAlreadyExistsException;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.model.EmployeeOutboxEvent;
+import com.jalian.springboottesting.repository.EmployeeOutboxRepository;
+import com.jalian.springboottesting.service.EmployeeChangeService;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureMockMvc
+public class EmployeeChangeRelayTest {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeChangeService employeeChangeService;
+
+    @Autowired
+    private EmployeeChangeRelay employeeChangeRelay;
+
+    @Autowired
+    private EmployeeOutboxRepository employeeOutboxRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EmployeeProperties employeeProperties;
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("delete from employee_outbox");
+        jdbcTemplate.update("delete from employee");
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void changesAreWrittenWithTheEmployeeTest() {
+        Employee employee = employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        assertThatThrownBy(() -> employeeService.save(Employee.builder().firstName("robyn").lastName("fenty").email("aj@gmail.com").build()))
+                .isInstanceOf(ResourceAlreadyExistsException.class);
+        employeeService.delete(employee.getId());
+        assertThat(employeeOutboxRepository.findAll()).extracting(event -> event.getType().name())
+                .containsExactlyInAnyOrder("SAVED", "DELETED");
+    }
+
+    //several chunks, each bulk statement clears the persistence context of its own transaction
+    @Test
+    void bulkChangesAreWrittenWithTheEmployeesTest() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj" + i + "@gmail.com").build()).getId());
+        }
+        employeeService.findById(ids.get(0));
+        employeeOutboxRepository.deleteAll();
+        employeeProperties.getBatch().setChunkSize(2);
+        try {
+            assertThat(employeeService.updateAll(new EmployeeBulkUpdate(ids, "amir", null)).getAffected()).isEqualTo(5);
+            assertThat(employeeService.findById(ids.get(0)).get().getFirstName()).isEqualTo("amir");
+            assertThat(employeeService.deleteAll(Arrays.asList(ids.get(0), ids.get(1), -1L)).getAffected()).isEqualTo(2);
+        } finally {
+            employeeProperties.getBatch().setChunkSize(500);
+        }
+        assertThat(employeeService.findById(ids.get(0))).isEmpty();
+        assertThat(employeeOutboxRepository.findAll()).extracting(event -> event.getType().name())
+                .containsExactlyInAnyOrder("UPDATED", "UPDATED", "UPDATED", "UPDATED", "UPDATED", "DELETED", "DELETED");
+        assertThat(employeeOutboxRepository.findAll()).filteredOn(event -> event.getType().name().equals("UPDATED"))
+                .allMatch(event -> event.getPayload().contains("\"firstName\":\"amir\"") && event.getPayload().contains("\"version\":1"));
+    }
+
+    @Test
+    void subscribeSinceTest() throws Exception {
+        Employee employee = employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        employeeService.save(Employee.builder().firstName("robyn").lastName("fenty").email("rihanna@gmail.com").build());
+        employee.setFirstName("amir");
+        employeeService.update(employee);
+        employeeService.delete(employee.getId());
+        employeeChangeRelay.relay();
+
+        String all = await(mockMvc.perform(get("/api/employees/changes").param("since", "0"))
+                .andExpect(request().asyncStarted()).andReturn(), "\"position\":4");
+        assertThat(all).contains("id:1\n", "\"type\":\"SAVED\"", "\"firstName\":\"amir\"", "\"type\":\"DELETED\"");
+
+        String resumed = await(mockMvc.perform(get("/api/employees/changes").header("Last-Event-ID", "3"))
+                .andExpect(request().asyncStarted()).andReturn(), "\"position\":4");
+        assertThat(resumed).doesNotContain("\"position\":3").contains("\"type\":\"DELETED\"");
+    }
+
+    @Test
+    void liveChangesTest() throws Exception {
+        employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        employeeChangeRelay.relay();
+        MvcResult subscription = mockMvc.perform(get("/api/employees/changes"))
+                .andExpect(request().asyncStarted()).andReturn();
+        employeeService.save(Employee.builder().firstName("robyn").lastName("fenty").email("rihanna@gmail.com").build());
+        employeeChangeRelay.relay();
+        assertThat(await(subscription, "\"position\":2")).contains("\"position\":2").doesNotContain("\"position\":1");
+    }
+
+    @Test
+    void expiredSinceTest() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj" + i + "@gmail.com").build());
+        }
+        employeeChangeRelay.relay();
+        assertThat(employeeChangeService.purgeRelayedBefore(Instant.now().plusSeconds(1))).isEqualTo(2);
+        mockMvc.perform(get("/api/employees/changes").param("since", "0")).andExpect(status().isGone());
+        mockMvc.perform(get("/api/employees/changes").param("since", "2")).andExpect(request().asyncStarted());
+    }
+
+    //relays on several nodes number the same outbox, here several threads stand in for them
+    @Test
+    void concurrentRelaysTakeTurnsTest() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj" + i + "@gmail.com").build());
+        }
+        ExecutorService relays = Executors.newFixedThreadPool(4);
+        CyclicBarrier start = new CyclicBarrier(4);
+        try {
+            List<Future<?>> rounds = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                rounds.add(relays.submit(() -> {
+                    //every round starts together, so the relays read the same unnumbered rows
+                    for (int round = 0; round < 10; round++) {
+                        start.await(10, TimeUnit.SECONDS);
+                        employeeChangeService.relay(2);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> round : rounds) {
+                round.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            relays.shutdownNow();
+        }
+        assertThat(employeeOutboxRepository.findAll()).extracting(EmployeeOutboxEvent::getPosition)
+                .containsExactlyInAnyOrderElementsOf(LongStream.rangeClosed(1, 20).boxed().collect(Collectors.toList()));
+    }
+
+    private static String await(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!result.getResponse().getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        return result.getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,124 @@
+package com.jalian.springboottesting.ratelimit;
+
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.controller.EmployeeAsyncController;
+import com.jalian.springboottesting.controller.EmployeeChangeController;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.DispatcherType;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class LoadSheddingInterceptorTest {
+
+    @Test
+    void concurrencyLimitTest() {
+        EmployeeProperties.LoadShedding settings = new EmployeeProperties.LoadShedding();
+        settings.setMaxConcurrency(2);
+        LoadSheddingInterceptor interceptor = new LoadSheddingInterceptor(Collections.emptyList(), settings);
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        assertThat(interceptor.preHandle(first, new MockHttpServletResponse(), null)).isTrue();
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null)).isTrue();
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), rejected, null)).isFalse();
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null)).isTrue();
+    }
+
+    @Test
+    void subscriptionReleasesItsSlotTest() throws Exception {
+        EmployeeProperties.LoadShedding settings = new EmployeeProperties.LoadShedding();
+        settings.setMaxConcurrency(1);
+        LoadSheddingInterceptor interceptor = new LoadSheddingInterceptor(Collections.emptyList(), settings);
+        HandlerMethod changes = new HandlerMethod(mock(EmployeeChangeController.class),
+                EmployeeChangeController.class.getMethod("changes", Long.class, Long.class));
+        MockHttpServletRequest subscription = new MockHttpServletRequest();
+        assertThat(interceptor.preHandle(subscription, new MockHttpServletResponse(), changes)).isTrue();
+        interceptor.afterConcurrentHandlingStarted(subscription, new MockHttpServletResponse(), changes);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), null)).isTrue();
+        subscription.setDispatcherType(DispatcherType.ASYNC);
+        interceptor.afterCompletion(subscription, new MockHttpServletResponse(), changes, null);
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null)).isFalse();
+    }
+
+    //a callable still runs on an executor after the servlet thread is gone, it holds its slot until it completes
+    @Test
+    void callableKeepsItsSlotTest() throws Exception {
+        EmployeeProperties.LoadShedding settings = new EmployeeProperties.LoadShedding();
+        settings.setMaxConcurrency(1);
+        LoadSheddingInterceptor interceptor = new LoadSheddingInterceptor(Collections.emptyList(), settings);
+        HandlerMethod findAll = new HandlerMethod(mock(EmployeeAsyncController.class),
+                EmployeeAsyncController.class.getMethod("findAll"));
+        MockHttpServletRequest callable = new MockHttpServletRequest();
+        assertThat(interceptor.preHandle(callable, new MockHttpServletResponse(), findAll)).isTrue();
+        interceptor.afterConcurrentHandlingStarted(callable, new MockHttpServletResponse(), findAll);
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null)).isFalse();
+        callable.setDispatcherType(DispatcherType.ASYNC);
+        interceptor.afterCompletion(callable, new MockHttpServletResponse(), findAll, null);
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null)).isTrue();
+    }
+
+    @Test
+    void adaptiveLimitTest() {
+        EmployeeProperties.LoadShedding settings = new EmployeeProperties.LoadShedding();
+        settings.setLatencyThreshold(Duration.ZERO);
+        settings.setMinConcurrency(150);
+        LoadSheddingInterceptor interceptor = new LoadSheddingInterceptor(Collections.emptyList(), settings);
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            interceptor.preHandle(request, new MockHttpServletResponse(), null);
+            interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+        }
+        assertThat(interceptor.limit()).isEqualTo(150);
+        settings.setLatencyThreshold(Duration.ofMinutes(1));
+        interceptor = new LoadSheddingInterceptor(Collections.emptyList(), settings);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+        assertThat(interceptor.limit()).isEqualTo(settings.getMaxConcurrency());
+    }
+
+    @Test
+    void poolWaitersTest() throws Exception {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:shedding");
+        pool.setMaximumPoolSize(1);
+        pool.setConnectionTimeout(5000);
+        EmployeeProperties.LoadShedding settings = new EmployeeProperties.LoadShedding();
+        settings.setMaxPoolWaiters(0);
+        LoadSheddingInterceptor interceptor = new LoadSheddingInterceptor(Collections.singletonList(pool), settings);
+        try (Connection held = pool.getConnection()) {
+            assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null)).isTrue();
+            CompletableFuture<Void> waiter = CompletableFuture.runAsync(() -> {
+                try (Connection connection = pool.getConnection()) {
+                    connection.isValid(1);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            while (pool.getHikariPoolMXBean().getThreadsAwaitingConnection() == 0) {
+                Thread.sleep(10);
+            }
+            MockHttpServletResponse rejected = new MockHttpServletResponse();
+            assertThat(interceptor.preHandle(new MockHttpServletRequest(), rejected, null)).isFalse();
+            assertThat(rejected.getStatus()).isEqualTo(503);
+            held.close();
+            waiter.get();
+        } finally {
+            pool.close();
+        }
+    }
+}
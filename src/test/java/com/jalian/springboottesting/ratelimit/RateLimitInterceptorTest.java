@@ -0,0 +1,126 @@
+package com.jalian.springboottesting.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.controller.EmployeeAsyncController;
+import com.jalian.springboottesting.controller.EmployeeController;
+import com.jalian.springboottesting.service.EmployeeService;
+import com.jalian.springboottesting.service.EmployeeWriteBehindService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class RateLimitInterceptorTest {
+
+    private EmployeeProperties.RateLimit settings;
+
+    private RateLimitInterceptor interceptor;
+
+    private EmployeeController controller;
+
+    @BeforeEach
+    void setup() {
+        settings = new EmployeeProperties.RateLimit();
+        EmployeeProperties.Limit findAll = new EmployeeProperties.Limit();
+        findAll.setCapacity(2);
+        findAll.setPermitsPerSecond(0.5);
+        settings.getEndpoints().put("EmployeeController#findAll", findAll);
+        interceptor = new RateLimitInterceptor(settings);
+        controller = new EmployeeController(mock(EmployeeService.class), mock(EmployeeWriteBehindService.class),
+                new ObjectMapper());
+    }
+
+    @Test
+    void tokenBucketTest() {
+        TokenBucket bucket = new TokenBucket(3, 10);
+        long now = 0;
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(bucket.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(100))).isZero();
+        assertThat(bucket.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(100))).isPositive();
+    }
+
+    @Test
+    void endpointLimitTest() throws Exception {
+        HandlerMethod findAll = new HandlerMethod(controller, "findAll");
+        assertThat(preHandle(findAll, "a").getStatus()).isEqualTo(200);
+        assertThat(preHandle(findAll, "a").getStatus()).isEqualTo(200);
+        MockHttpServletResponse rejected = preHandle(findAll, "a");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        //other clients and other endpoints have buckets of their own
+        assertThat(preHandle(findAll, "b").getStatus()).isEqualTo(200);
+        assertThat(preHandle(new HandlerMethod(controller, "findById", Long.class), "a").getStatus()).isEqualTo(200);
+    }
+
+    //findAll of another controller keeps the default limit, the fields overload shares the bucket
+    @Test
+    void endpointsAreKeyedByControllerTest() throws Exception {
+        HandlerMethod findAll = new HandlerMethod(controller, "findAll");
+        HandlerMethod findFields = new HandlerMethod(controller, EmployeeController.class.getMethod("findAll", List.class));
+        HandlerMethod asyncFindAll = new HandlerMethod(new EmployeeAsyncController(controller), "findAll");
+        assertThat(preHandle(findAll, "a").getStatus()).isEqualTo(200);
+        assertThat(preHandle(findFields, "a").getStatus()).isEqualTo(200);
+        assertThat(preHandle(findFields, "a").getStatus()).isEqualTo(429);
+        assertThat(preHandle(findAll, "a").getStatus()).isEqualTo(429);
+        for (int i = 0; i < 10; i++) {
+            assertThat(preHandle(asyncFindAll, "a").getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void remoteAddressTest() throws Exception {
+        HandlerMethod findAll = new HandlerMethod(controller, "findAll");
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/employees");
+            request.setRemoteAddr("10.0.0." + i);
+            assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), findAll)).isTrue();
+            assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), findAll)).isTrue();
+            assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), findAll)).isFalse();
+        }
+    }
+
+    //made up keys get no more than max-keys-per-address buckets, the rest share the address's bucket
+    @Test
+    void keysPerAddressAreCappedTest() throws Exception {
+        settings.setMaxKeysPerAddress(2);
+        HandlerMethod findAll = new HandlerMethod(controller, "findAll");
+        for (int i = 0; i < 2; i++) {
+            assertThat(preHandle(findAll, "key" + i).getStatus()).isEqualTo(200);
+        }
+        assertThat(preHandle(findAll, "key2").getStatus()).isEqualTo(200);
+        assertThat(preHandle(findAll, "key3").getStatus()).isEqualTo(200);
+        assertThat(preHandle(findAll, "key4").getStatus()).isEqualTo(429);
+        //the first keys keep their own buckets
+        assertThat(preHandle(findAll, "key0").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void keyCannotTakeAnAddressBucketTest() throws Exception {
+        HandlerMethod findAll = new HandlerMethod(controller, "findAll");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/employees");
+        request.setRemoteAddr("10.0.0.1");
+        assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), findAll)).isTrue();
+        assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), findAll)).isTrue();
+        assertThat(preHandle(findAll, "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse preHandle(HandlerMethod handler, String apiKey) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/employees");
+        request.addHeader(settings.getClientHeader(), apiKey);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, handler);
+        return response;
+    }
+}
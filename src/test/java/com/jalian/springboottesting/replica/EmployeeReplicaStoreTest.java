@@ -0,0 +1,139 @@
+package com.jalian.springboottesting.replica;
+
+import com.jalian.springboottesting.model.Employee;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EmployeeReplicaStoreTest {
+
+    private final EmployeeReplicaStore store = new EmployeeReplicaStore(16);
+
+    private final EmployeeReplicaStore.Row row = new EmployeeReplicaStore.Row();
+
+    @Test
+    void putAndReadTest() {
+        store.put(employee(1L, "amirhosein", "jalian", "aj@gmail.com", 0L));
+        store.put(employee(2L, "Zoë", "Ŝtraße", "zoe@gmail.com", null));
+
+        assertThat(store.read(1L, row)).isTrue();
+        assertThat(row.toEmployee()).usingRecursiveComparison().isEqualTo(employee(1L, "amirhosein", "jalian", "aj@gmail.com", 0L));
+        assertThat(store.read(2L, row)).isTrue();
+        assertThat(row.toEmployee()).usingRecursiveComparison().isEqualTo(employee(2L, "Zoë", "Ŝtraße", "zoe@gmail.com", null));
+        assertThat(store.read(3L, row)).isFalse();
+        assertThat(store.readByEmail("AJ@Gmail.com", row)).isTrue();
+        assertThat(row.getId()).isEqualTo(1L);
+        assertThat(store.readByEmail("aj@gmail.co", row)).isFalse();
+    }
+
+    @Test
+    void updateAndRemoveTest() {
+        store.put(employee(1L, "amirhosein", "jalian", "aj@gmail.com", 0L));
+        store.put(employee(1L, "amir", "jalian", "amir@gmail.com", 1L));
+
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.readByEmail("aj@gmail.com", row)).isFalse();
+        assertThat(store.readByEmail("amir@gmail.com", row)).isTrue();
+        assertThat(row.getFirstName().toString()).isEqualTo("amir");
+        assertThat(row.getVersion()).isEqualTo(1L);
+
+        store.remove(1L);
+        assertThat(store.size()).isZero();
+        assertThat(store.read(1L, row)).isFalse();
+        assertThat(store.readByEmail("amir@gmail.com", row)).isFalse();
+    }
+
+    //grows every table, removes every other id and rewrites every email, which compacts the arena
+    @Test
+    void olderVersionDoesNotReplaceNewerTest() {
+        store.put(employee(1L, "amir", "jalian", "amir@gmail.com", 2L));
+        store.put(employee(1L, "amirhosein", "jalian", "aj@gmail.com", 1L));
+
+        assertThat(store.read(1L, row)).isTrue();
+        assertThat(row.getVersion()).isEqualTo(2L);
+        assertThat(row.getEmail().toString()).isEqualTo("amir@gmail.com");
+        assertThat(store.readByEmail("aj@gmail.com", row)).isFalse();
+    }
+
+    @Test
+    void manyEmployeesTest() {
+        int employees = 100_000;
+        for (long id = 1; id <= employees; id++) {
+            store.put(employee(id, "amirhosein" + id % 100, "jalian", "aj" + id + "@gmail.com", 0L));
+        }
+        for (long id = 2; id <= employees; id += 2) {
+            store.remove(id);
+        }
+        for (long id = 1; id <= employees; id += 2) {
+            store.put(employee(id, "amirhosein" + id % 100, "jalian", "renamed" + id + "@gmail.com", 1L));
+        }
+
+        assertThat(store.size()).isEqualTo(employees / 2);
+        for (long id = 1; id <= employees; id++) {
+            assertThat(store.read(id, row)).isEqualTo(id % 2 == 1);
+        }
+        assertThat(store.readByEmail("renamed99999@gmail.com", row)).isTrue();
+        assertThat(row.getFirstName().toString()).isEqualTo("amirhosein99");
+        assertThat(store.readByEmail("aj99999@gmail.com", row)).isFalse();
+    }
+
+    @Test
+    void readsDoNotAllocateTest() {
+        for (long id = 1; id <= 1000; id++) {
+            store.put(employee(id, "amirhosein", "jalian", "aj" + id + "@gmail.com", id));
+        }
+        String email = "aj500@gmail.com";
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        readAll(email);
+        long before = threads.getThreadAllocatedBytes(thread);
+        readAll(email);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        //10000 reads, anything per read would add up to far more
+        assertThat(allocated).isLessThan(1024);
+    }
+
+    @Test
+    void readersSeeWholeRowsTest() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (long version = 0; running.get(); version++) {
+                for (long id = 1; id <= 100; id++) {
+                    if (version % 3 == 2) {
+                        store.remove(id);
+                    } else {
+                        store.put(employee(id, "first" + id + "-" + version, "last" + id, "e" + id + "-" + version + "@gmail.com", version));
+                    }
+                }
+            }
+        });
+        EmployeeReplicaStore.Row reader = new EmployeeReplicaStore.Row();
+        for (int i = 0; i < 200_000; i++) {
+            long id = 1 + i % 100;
+            if (store.read(id, reader)) {
+                String version = Long.toString(reader.getVersion());
+                assertThat(reader.getId()).isEqualTo(id);
+                assertThat(reader.getFirstName().toString()).isEqualTo("first" + id + "-" + version);
+                assertThat(reader.getEmail().toString()).isEqualTo("e" + id + "-" + version + "@gmail.com");
+            }
+        }
+        running.set(false);
+        writer.get();
+    }
+
+    private void readAll(String email) {
+        for (int i = 0; i < 5000; i++) {
+            store.read(1 + i % 1000, row);
+            store.readByEmail(email, row);
+        }
+    }
+
+    private static Employee employee(Long id, String firstName, String lastName, String email, Long version) {
+        return Employee.builder().id(id).firstName(firstName).lastName(lastName).email(email).version(version).build();
+    }
+}
@@ -0,0 +1,146 @@
+package com.jalian.springboottesting.replica;
+
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "employee.replica.enabled=true"
+})
+public class EmployeeReplicaTest {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeReplica employeeReplica;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("delete from employee_outbox");
+        jdbcTemplate.update("delete from employee");
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        employeeReplica.load();
+    }
+
+    //the rows are removed behind the replica's back, only the replica can still answer
+    @Test
+    void writesReachTheReplicaTest() {
+        Employee employee = employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        employee.setFirstName("amir");
+        employeeService.update(employee);
+        Employee deleted = employeeService.save(Employee.builder().firstName("robyn").lastName("fenty").email("rihanna@gmail.com").build());
+        employeeService.delete(deleted.getId());
+        jdbcTemplate.update("delete from employee");
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+
+        assertThat(employeeService.findById(employee.getId())).get().extracting(Employee::getFirstName).isEqualTo("amir");
+        assertThat(employeeService.findByEmail("AJ@gmail.com")).get().extracting(Employee::getVersion).isEqualTo(1L);
+        assertThat(employeeService.findById(deleted.getId())).isEmpty();
+    }
+
+    @Test
+    void loadTest() {
+        jdbcTemplate.update("insert into employee (id, first_name, last_name, email, version) values (1000, 'amirhosein', 'jalian', 'aj@gmail.com', 3)");
+        assertThat(employeeReplica.get(1000L)).isEmpty();
+
+        employeeReplica.load();
+        assertThat(employeeReplica.isLoaded()).isTrue();
+        assertThat(employeeReplica.get(1000L)).get().extracting(Employee::getVersion).isEqualTo(3L);
+        EmployeeReplicaStore.Row row = new EmployeeReplicaStore.Row();
+        assertThat(employeeReplica.readByEmail("aj@gmail.com", row)).isTrue();
+        assertThat(row.getId()).isEqualTo(1000L);
+        assertThat(employeeReplica.read(1001L, row)).isFalse();
+    }
+
+    //another node updated one employee and deleted the other, the invalidator hands both ids over
+    @Test
+    void refreshTest() {
+        Employee updated = employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        Employee deleted = employeeService.save(Employee.builder().firstName("robyn").lastName("fenty").email("rihanna@gmail.com").build());
+        jdbcTemplate.update("update employee set first_name = 'amir', version = version + 1 where id = ?", updated.getId());
+        jdbcTemplate.update("delete from employee where id = ?", deleted.getId());
+
+        employeeReplica.refresh(Arrays.asList(updated.getId(), deleted.getId()));
+
+        assertThat(employeeReplica.get(updated.getId())).get().satisfies(replicated -> {
+            assertThat(replicated.getFirstName()).isEqualTo("amir");
+            assertThat(replicated.getVersion()).isEqualTo(1L);
+        });
+        assertThat(employeeReplica.get(deleted.getId())).isEmpty();
+    }
+
+    //an update without If-Match still commits a known version, the replica keeps the employee
+    @Test
+    void unversionedUpdateTest() {
+        Employee employee = employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        employeeService.update(Employee.builder().id(employee.getId()).firstName("amir").lastName("jalian").email("aj@gmail.com").build());
+
+        assertThat(employeeReplica.get(employee.getId())).get().satisfies(replicated -> {
+            assertThat(replicated.getFirstName()).isEqualTo("amir");
+            assertThat(replicated.getVersion()).isEqualTo(1L);
+        });
+    }
+
+    //readers miss the replica and load older versions from the cache and the database while the updates commit,
+    //none of them may end up in the replica
+    @Test
+    void concurrentReadsDoNotReplaceNewerVersionsTest() throws Exception {
+        Employee employee = employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        Long id = employee.getId();
+        employeeReplica.remove(id);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<CompletableFuture<Void>> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            readers.add(CompletableFuture.runAsync(() -> {
+                while (running.get()) {
+                    employeeService.findById(id);
+                    employeeService.findByEmail("aj@gmail.com");
+                }
+            }));
+        }
+        long version = employee.getVersion();
+        for (int i = 0; i < 50; i++) {
+            Employee update = Employee.builder().id(id).firstName("amir" + i).lastName("jalian").email("aj@gmail.com")
+                    .version(version).build();
+            version = employeeService.update(update).getVersion();
+            //between updates the replica misses again, as it would after another node's change
+            employeeReplica.remove(id);
+        }
+        long last = employeeService.update(Employee.builder().id(id).firstName("amir").lastName("jalian")
+                .email("aj@gmail.com").version(version).build()).getVersion();
+        running.set(false);
+        for (CompletableFuture<Void> reader : readers) {
+            reader.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(employeeReplica.get(id)).get().satisfies(replicated -> {
+            assertThat(replicated.getVersion()).isEqualTo(last);
+            assertThat(replicated.getFirstName()).isEqualTo("amir");
+        });
+    }
+}
@@ -1,22 +1,51 @@
 package com.jalian.springboottesting.repository;
 
 import com.jalian.springboottesting.model.Employee;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@DataJpaTest //configures in memory databases, just for repository layer, scans entities
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+}) //configures in memory databases, just for repository layer, scans entities
 public class EmployeeRepositoryTest {
 
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private Employee employee;
 
     @BeforeEach
@@ -51,6 +80,194 @@ public class EmployeeRepositoryTest {
         assertThat(employees.size()).isEqualTo(2);
     }
 
+    @Test
+    void saveDuplicateEmailEmployeeTest() {
+        employeeRepository.saveAndFlush(employee);
+        Employee duplicate = Employee.builder()
+                .firstName("rihanna")
+                .lastName("fenty")
+                .email(employee.getEmail())
+                .build();
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> {
+            employeeRepository.saveAndFlush(duplicate);
+        });
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) //every thread commits on its own
+    void saveDuplicateEmailEmployeesConcurrentlyTest() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> inserts = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Employee duplicate = Employee.builder()
+                        .firstName("amirhosein" + i)
+                        .lastName("jalian")
+                        .email(employee.getEmail())
+                        .build();
+                inserts.add(executor.submit((Callable<Boolean>) () -> {
+                    start.await();
+                    try {
+                        employeeRepository.saveAndFlush(duplicate);
+                        return true;
+                    } catch (DataIntegrityViolationException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int succeeded = 0;
+            for (Future<Boolean> insert : inserts) {
+                succeeded += insert.get() ? 1 : 0;
+            }
+            assertThat(succeeded).isEqualTo(1);
+            assertThat(employeeRepository.findEmailsIn(Arrays.asList(employee.getEmail()))).hasSize(1);
+        } finally {
+            executor.shutdownNow();
+            employeeRepository.deleteAll();
+        }
+    }
+
+    @Test
+    void findEmailsInEmployeesTest() {
+        employeeRepository.save(employee);
+        List<String> emails = employeeRepository.findEmailsIn(Arrays.asList(employee.getEmail(), "robynFenty@gmail.com"));
+        assertThat(emails).containsExactly(employee.getEmail());
+    }
+
+    @Test
+    void insertAllEmployeesUsesJdbcBatchesTest() {
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            employees.add(Employee.builder()
+                    .firstName("amirhosein" + i)
+                    .lastName("jalian")
+                    .email("aj" + i + "@gmail.com")
+                    .build());
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        employeeRepository.insertAll(employees);
+        assertThat(employeeRepository.count()).isEqualTo(100);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(100);
+        //two insert batches of 50 plus a few pooled sequence calls, not 100 statements
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(10);
+    }
+
+    @Test
+    void findByIdGreaterThanEmployeesTest() {
+        Employee employee2 = Employee.builder()
+                .firstName("rihanna")
+                .lastName("fenty")
+                .email("robynFenty@gmail.com")
+                .build();
+        employeeRepository.save(employee);
+        employeeRepository.save(employee2);
+        List<Employee> employees = employeeRepository.findByIdGreaterThanOrderByIdAsc(employee.getId(), PageRequest.of(0, 10));
+        assertThat(employees).containsExactly(employee2);
+    }
+
+    @Test
+    void findAllFieldsEmployeesTest() {
+        Employee employee2 = Employee.builder()
+                .firstName("rihanna")
+                .lastName("fenty")
+                .email("robynFenty@gmail.com")
+                .build();
+        employeeRepository.save(employee);
+        employeeRepository.save(employee2);
+        List<Map<String, Object>> rows = employeeRepository.findAllFields(Arrays.asList("id", "email"));
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0)).containsOnlyKeys("id", "email");
+        assertThat(rows.get(0)).containsEntry("id", employee.getId()).containsEntry("email", employee.getEmail());
+        assertThat(rows.get(1)).containsEntry("id", employee2.getId()).containsEntry("email", employee2.getEmail());
+    }
+
+    @Test
+    void findAllByIdInOrderEmployeesTest() {
+        List<Employee> saved = new ArrayList<>();
+        for (int index = 0; index < 5; index++) {
+            saved.add(employeeRepository.save(employee.toBuilder().email("aj" + index + "@gmail.com").build()));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Long> ids = Arrays.asList(saved.get(4).getId(), -1L, saved.get(0).getId(), saved.get(2).getId());
+        List<Employee> employees = employeeRepository.findAllByIdInOrder(ids, 2);
+        assertThat(employees).hasSize(4);
+        assertThat(employees.get(0).getEmail()).isEqualTo("aj4@gmail.com");
+        assertThat(employees.get(1)).isNull();
+        assertThat(employees.get(2).getEmail()).isEqualTo("aj0@gmail.com");
+        assertThat(employees.get(3).getEmail()).isEqualTo("aj2@gmail.com");
+        //four ids in chunks of two
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void updateNamesByIdInEmployeesTest() {
+        Employee saved = employeeRepository.save(employee);
+        Employee other = employeeRepository.save(employee.toBuilder().id(null).version(null).email("aj2@gmail.com").build());
+        entityManager.flush();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertThat(employeeRepository.updateNamesByIdIn(Arrays.asList(saved.getId(), -1L), "amir", null)).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        Employee updated = employeeRepository.findById(saved.getId()).get();
+        assertThat(updated.getFirstName()).isEqualTo("amir");
+        assertThat(updated.getLastName()).isEqualTo("jalian");
+        assertThat(updated.getVersion()).isEqualTo(saved.getVersion() + 1);
+        assertThat(employeeRepository.findById(other.getId()).get().getFirstName()).isEqualTo("amirhosein");
+    }
+
+    @Test
+    void removeByIdInEmployeesTest() {
+        Employee saved = employeeRepository.save(employee);
+        Employee other = employeeRepository.save(employee.toBuilder().id(null).version(null).email("aj2@gmail.com").build());
+        entityManager.flush();
+
+        assertThat(employeeRepository.findIdsInForUpdate(Arrays.asList(saved.getId(), -1L))).containsExactly(saved.getId());
+        assertThat(employeeRepository.removeByIdIn(Arrays.asList(saved.getId(), -1L))).isEqualTo(1);
+        assertThat(employeeRepository.findById(saved.getId())).isEmpty();
+        assertThat(employeeRepository.findById(other.getId())).isPresent();
+    }
+
+    @Test
+    void forEachOrderedByIdEmployeesTest() {
+        Employee employee2 = Employee.builder()
+                .firstName("rihanna")
+                .lastName("fenty")
+                .email("robynFenty@gmail.com")
+                .build();
+        employeeRepository.save(employee);
+        employeeRepository.save(employee2);
+        List<String> emails = new ArrayList<>();
+        employeeRepository.forEachOrderedById(streamed -> emails.add(streamed.getEmail()));
+        assertThat(emails).containsExactly(employee.getEmail(), employee2.getEmail());
+    }
+
+    @Test
+    void forEachRowOrderedByIdMillionEmployeesTest() {
+        entityManager.createNativeQuery("insert into employee (id, first_name, last_name, email, version) "
+                + "select x, 'amirhosein' || x, 'jalian', 'aj' || x || '@gmail.com', 0 from system_range(1, 1000000)")
+                .executeUpdate();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long[] rows = {0, 0};
+        employeeRepository.forEachRowOrderedById(streamed -> {
+            rows[0]++;
+            rows[1] = streamed.getId();
+        });
+        assertThat(rows[0]).isEqualTo(1000000);
+        assertThat(rows[1]).isEqualTo(1000000);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
     @Test
     void findByIdEmployeeTest() {
         employeeRepository.save(employee);
@@ -76,6 +293,13 @@ public class EmployeeRepositoryTest {
         assertThat(updatedEmployee.getFirstName()).isEqualTo(savedEmployee.getFirstName());
     }
 
+    @Test
+    void findByIdForUpdateEmployeeTest() {
+        employeeRepository.saveAndFlush(employee);
+        assertThat(employeeRepository.findByIdForUpdate(employee.getId())).get().extracting(Employee::getEmail).isEqualTo("aj@gmail.com");
+        assertThat(employeeRepository.findByIdForUpdate(-1L)).isEmpty();
+    }
+
     @Test
     void deleteEmployeeTest() {
         employeeRepository.save(employee);
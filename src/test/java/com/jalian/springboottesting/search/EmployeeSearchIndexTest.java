@@ -0,0 +1,87 @@
+package com.jalian.springboottesting.search;
+
+import com.jalian.springboottesting.event.EmployeeChangedEvent;
+import com.jalian.springboottesting.model.Employee;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EmployeeSearchIndexTest {
+
+    private EmployeeSearchIndex employeeSearchIndex;
+
+    @BeforeEach
+    void setup() {
+        employeeSearchIndex = new EmployeeSearchIndex(null);
+        save(1L, "amirhosein", "jalian", "aj@gmail.com");
+        save(2L, "amir", "rezaei", "amir.rezaei@gmail.com");
+        save(3L, "rihanna", "fenty", "robynFenty@gmail.com");
+    }
+
+    @Test
+    void searchByNamePrefixTest() {
+        assertThat(ids(employeeSearchIndex.search("ami", 10))).containsExactly(2L, 1L);
+        assertThat(ids(employeeSearchIndex.search("Fen", 10))).containsExactly(3L);
+    }
+
+    @Test
+    void searchRanksExactNameFirstTest() {
+        assertThat(ids(employeeSearchIndex.search("amir", 10))).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void searchRequiresEveryWordTest() {
+        assertThat(ids(employeeSearchIndex.search("amir jal", 10))).containsExactly(1L);
+        assertThat(employeeSearchIndex.search("amir fenty", 10)).isEmpty();
+    }
+
+    @Test
+    void searchByEmailTest() {
+        assertThat(ids(employeeSearchIndex.search("robyn", 10))).containsExactly(3L);
+        assertThat(ids(employeeSearchIndex.search("aj@gm", 10))).containsExactly(1L);
+    }
+
+    @Test
+    void searchHonoursLimitTest() {
+        assertThat(employeeSearchIndex.search("r", 10)).hasSize(2);
+        assertThat(employeeSearchIndex.search("r", 1)).hasSize(1);
+        assertThat(employeeSearchIndex.search("   ", 10)).isEmpty();
+    }
+
+    @Test
+    void updateReplacesTermsTest() {
+        employeeSearchIndex.onEmployeeChanged(EmployeeChangedEvent.updated(Employee.builder()
+                .id(3L)
+                .firstName("robyn")
+                .lastName("fenty")
+                .email("robynFenty@gmail.com")
+                .build()));
+        assertThat(employeeSearchIndex.search("rihanna", 10)).isEmpty();
+        assertThat(ids(employeeSearchIndex.search("robyn", 10))).containsExactly(3L);
+        assertThat(employeeSearchIndex.size()).isEqualTo(3);
+    }
+
+    @Test
+    void deleteRemovesEmployeeTest() {
+        employeeSearchIndex.onEmployeeChanged(EmployeeChangedEvent.deleted(1L));
+        assertThat(ids(employeeSearchIndex.search("amir", 10))).containsExactly(2L);
+        assertThat(employeeSearchIndex.size()).isEqualTo(2);
+    }
+
+    private void save(Long id, String firstName, String lastName, String email) {
+        employeeSearchIndex.onEmployeeChanged(EmployeeChangedEvent.saved(Employee.builder()
+                .id(id)
+                .firstName(firstName)
+                .lastName(lastName)
+                .email(email)
+                .build()));
+    }
+
+    private static List<Long> ids(List<Employee> employees) {
+        return employees.stream().map(Employee::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,134 @@
+package com.jalian.springboottesting.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.dto.EmployeeImportJob;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.impl.EmployeeImportServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class EmployeeImportServiceTest {
+
+    @Mock
+    private EmployeeService employeeService;
+
+    @Spy
+    private EmployeeProperties employeeProperties = new EmployeeProperties();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private EmployeeImportServiceImpl employeeImportService;
+
+    private final List<List<Employee>> savedChunks = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        employeeProperties.getBulkImport().setChunkSize(2);
+    }
+
+    @Test
+    void importNdjsonEmployeesTest() {
+        givenSaveAllCreatesAllButTaken("taken@gmail.com");
+        EmployeeImportJob job = employeeImportService.importNdjson(body(
+                "{\"firstName\":\"amirhosein\",\"lastName\":\"jalian\",\"email\":\"aj@gmail.com\"}\n"
+                        + "{\"firstName\":\"rihanna\",\n"
+                        + "\n"
+                        + "{\"firstName\":\"robyn\",\"lastName\":\"fenty\",\"email\":\"taken@gmail.com\"}\n"
+                        + "{\"firstName\":\"taylor\",\"lastName\":\"swift\",\"email\":\"ts@gmail.com\"}\n"));
+
+        assertThat(job.getStatus()).isEqualTo(EmployeeImportJob.Status.COMPLETED);
+        assertThat(job.getRows()).isEqualTo(4);
+        assertThat(job.getCreated()).isEqualTo(2);
+        assertThat(job.getRejected()).isEqualTo(2);
+        assertThat(job.getRejections()).extracting(EmployeeImportJob.Rejection::getLine).containsExactly(2L, 4L);
+        assertThat(savedChunks).hasSize(2);
+        assertThat(employeeImportService.findJob(job.getId())).isPresent();
+    }
+
+    @Test
+    void importCsvEmployeesTest() {
+        givenSaveAllCreatesAllButTaken("taken@gmail.com");
+        EmployeeImportJob job = employeeImportService.importCsv(body(
+                "email,firstName,lastName\n"
+                        + "aj@gmail.com,amirhosein,jalian\n"
+                        + "robyn@gmail.com,robyn,\"fenty, \"\"rihanna\"\"\"\n"
+                        + "ts@gmail.com,\"taylor\n"));
+
+        assertThat(job.getRows()).isEqualTo(3);
+        assertThat(job.getCreated()).isEqualTo(2);
+        assertThat(job.getRejections()).extracting(EmployeeImportJob.Rejection::getLine).containsExactly(4L);
+        assertThat(savedChunks.get(0)).extracting(Employee::getLastName).containsExactly("jalian", "fenty, \"rihanna\"");
+    }
+
+    @Test
+    void importRetriesFailedChunkRowByRowTest() {
+        given(employeeService.saveAll(anyList())).willAnswer(invocationOnMock -> {
+            List<Employee> chunk = invocationOnMock.getArgument(0);
+            if (chunk.stream().anyMatch(employee -> employee.getFirstName().length() > 10)) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            List<EmployeeBatchResult> results = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(EmployeeBatchResult.created(i, (long) i + 1));
+            }
+            return results;
+        });
+        EmployeeImportJob job = employeeImportService.importCsv(body(
+                "firstName,lastName,email\n"
+                        + "amirhosein,jalian,aj@gmail.com\n"
+                        + "amirhoseinamirhosein,jalian,aj2@gmail.com\n"));
+
+        assertThat(job.getCreated()).isEqualTo(1);
+        assertThat(job.getRejections()).extracting(EmployeeImportJob.Rejection::getLine).containsExactly(3L);
+        verify(employeeService, times(3)).saveAll(anyList());
+    }
+
+    @Test
+    void importReportsOnlyFirstRejectionsTest() {
+        employeeProperties.getBulkImport().setMaxReportedRejections(1);
+        EmployeeImportJob job = employeeImportService.importNdjson(body("{\n[\n"));
+
+        assertThat(job.getRejected()).isEqualTo(2);
+        assertThat(job.getRejections()).hasSize(1);
+    }
+
+    private void givenSaveAllCreatesAllButTaken(String takenEmail) {
+        given(employeeService.saveAll(anyList())).willAnswer(invocationOnMock -> {
+            List<Employee> chunk = invocationOnMock.getArgument(0);
+            List<EmployeeBatchResult> results = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(takenEmail.equals(chunk.get(i).getEmail())
+                        ? EmployeeBatchResult.duplicate(i) : EmployeeBatchResult.created(i, (long) i + 1));
+            }
+            savedChunks.add(new ArrayList<>(chunk));
+            return results;
+        });
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,28 +1,61 @@
 package com.jalian.springboottesting.service;
 
+import com.jalian.springboottesting.cache.EmployeeCache;
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.dto.EmployeeBulkResult;
+import com.jalian.springboottesting.dto.EmployeeBulkUpdate;
+import com.jalian.springboottesting.dto.EmployeeLookup;
+import com.jalian.springboottesting.dto.EmployeePage;
+import com.jalian.springboottesting.event.EmployeeChangedEvent;
+import com.jalian.springboottesting.exception.InvalidFieldsException;
+import com.jalian.springboottesting.exception.PreconditionFailedException;
+import com.jalian.springboottesting.exception.ResourceAlreadyExistsException;
 import com.jalian.springboottesting.exception.ResourceNotFoundException;
+import com.jalian.springboottesting.exception.TooManyIdsException;
 import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.replica.EmployeeReplica;
 import com.jalian.springboottesting.repository.EmployeeRepository;
+import com.jalian.springboottesting.search.EmployeeSearchIndex;
 import com.jalian.springboottesting.service.impl.EmployeeServiceImpl;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 @ExtendWith(MockitoExtension.class)
 public class EmployeeServiceTest {
@@ -30,6 +63,24 @@ public class EmployeeServiceTest {
     @Mock
     private EmployeeRepository employeeRepository;
 
+    @Spy
+    private EmployeeProperties employeeProperties = new EmployeeProperties();
+
+    @Spy
+    private EmployeeCache employeeCache = new EmployeeCache(new ConcurrentMapCacheManager());
+
+    @Mock
+    private EmployeeSearchIndex employeeSearchIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EmployeeReplica employeeReplica;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private EmployeeServiceImpl employeeService;
 
@@ -47,20 +98,129 @@ public class EmployeeServiceTest {
 
     @Test
     void saveEmployeeTest() {
-        given(employeeRepository.save(employee)).willReturn(employee);
-        given(employeeRepository.findByEmail(employee.getEmail())).willReturn(null);
+        given(employeeRepository.saveAndFlush(employee)).willReturn(employee);
         Employee savedEmployee = employeeService.save(employee);
         assertThat(savedEmployee).isNotNull();
         assertThat(savedEmployee).isEqualTo(employee);
+        verify(employeeRepository, never()).findByEmail(any(String.class));
+        verify(eventPublisher).publishEvent(argThat((EmployeeChangedEvent event) ->
+                event.getType() == EmployeeChangedEvent.Type.SAVED && event.getEmployee() == employee));
     }
 
     @Test
     void saveEmployeeTestWhichThrowsException() {
-        given(employeeRepository.findByEmail(employee.getEmail())).willReturn(employee);
-        Assertions.assertThrows(ResourceNotFoundException.class, () -> {
+        given(employeeRepository.saveAndFlush(employee)).willThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException(), "PUBLIC.UK_EMPLOYEE_EMAIL_INDEX_7")));
+        Assertions.assertThrows(ResourceAlreadyExistsException.class, () -> {
+            employeeService.save(employee);
+        });
+    }
+
+    @Test
+    void saveEmployeeTestWhichThrowsOtherIntegrityViolation() {
+        given(employeeRepository.saveAndFlush(employee)).willThrow(new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", new SQLException(), null)));
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> {
             employeeService.save(employee);
         });
-        verify(employeeRepository, never()).save(any(Employee.class));
+    }
+
+    @Test
+    void saveAllEmployeesTest() {
+        Employee existing = Employee.builder()
+                .firstName("rihanna")
+                .lastName("fenty")
+                .email("robyn@gmail.com")
+                .build();
+        Employee sameEmail = Employee.builder()
+                .firstName("amirhosein2")
+                .lastName("jalian")
+                .email("AJ@gmail.com")
+                .build();
+        Employee invalid = Employee.builder()
+                .firstName("taylor")
+                .lastName("swift")
+                .build();
+        given(employeeRepository.findEmailsIn(anyCollection())).willReturn(Collections.singletonList("robyn@gmail.com"));
+        willAnswer(invocationOnMock -> {
+            List<Employee> inserts = invocationOnMock.getArgument(0);
+            inserts.forEach(insert -> insert.setId(10L));
+            return null;
+        }).given(employeeRepository).insertAll(anyList());
+
+        List<EmployeeBatchResult> results = employeeService.saveAll(Arrays.asList(employee, existing, sameEmail, invalid));
+        assertThat(results).extracting(EmployeeBatchResult::getStatus).containsExactly(
+                EmployeeBatchResult.Status.CREATED,
+                EmployeeBatchResult.Status.DUPLICATE,
+                EmployeeBatchResult.Status.DUPLICATE,
+                EmployeeBatchResult.Status.INVALID);
+        assertThat(results.get(0).getId()).isEqualTo(10L);
+        verify(employeeRepository, times(1)).findEmailsIn(anyCollection());
+        verify(employeeRepository, times(1)).insertAll(Collections.singletonList(employee));
+    }
+
+    @Test
+    void saveAllEmployeesTestChecksEachChunkOnce() {
+        employeeProperties.getBatch().setChunkSize(2);
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            employees.add(Employee.builder()
+                    .firstName("amirhosein" + i)
+                    .lastName("jalian")
+                    .email("aj" + i + "@gmail.com")
+                    .build());
+        }
+        given(employeeRepository.findEmailsIn(anyCollection())).willReturn(new ArrayList<>());
+
+        List<EmployeeBatchResult> results = employeeService.saveAll(employees);
+        assertThat(results).extracting(EmployeeBatchResult::getStatus).containsOnly(EmployeeBatchResult.Status.CREATED);
+        verify(employeeRepository, times(3)).findEmailsIn(anyCollection());
+        verify(employeeRepository, times(3)).insertAll(anyList());
+    }
+
+    //the email was taken after the check, the chunk is retried row by row and only the loser is a duplicate
+    @Test
+    void saveAllEmployeesTestRetriesFailedChunkRowByRow() {
+        Employee taken = Employee.builder()
+                .firstName("rihanna")
+                .lastName("fenty")
+                .email("robyn@gmail.com")
+                .build();
+        given(employeeRepository.findEmailsIn(anyCollection())).willReturn(new ArrayList<>());
+        DataIntegrityViolationException duplicate = new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException(), "uk_employee_email"));
+        willThrow(duplicate)
+                .willAnswer(invocationOnMock -> {
+                    List<Employee> inserts = invocationOnMock.getArgument(0);
+                    inserts.forEach(insert -> insert.setId(10L));
+                    return null;
+                })
+                .willThrow(duplicate)
+                .given(employeeRepository).insertAll(anyList());
+
+        List<EmployeeBatchResult> results = employeeService.saveAll(Arrays.asList(employee, taken));
+        assertThat(results).extracting(EmployeeBatchResult::getStatus).containsExactly(
+                EmployeeBatchResult.Status.CREATED,
+                EmployeeBatchResult.Status.DUPLICATE);
+        assertThat(results.get(0).getId()).isEqualTo(10L);
+        verify(employeeRepository, times(3)).insertAll(anyList());
+        verify(employeeRepository).insertAll(Collections.singletonList(taken));
+        verify(eventPublisher, times(1)).publishEvent(any(EmployeeChangedEvent.class));
+    }
+
+    @Test
+    void saveEmployeeTestWhichThrowsExceptionFromEmailIndex() {
+        given(employeeRepository.findById(employee.getId())).willReturn(Optional.of(employee));
+        employeeService.findById(employee.getId());
+        Employee sameEmail = Employee.builder()
+                .firstName("amirhosein2")
+                .lastName("jalian")
+                .email("aj@gmail.com")
+                .build();
+        Assertions.assertThrows(ResourceAlreadyExistsException.class, () -> {
+            employeeService.save(sameEmail);
+        });
+        verify(employeeRepository, never()).saveAndFlush(any(Employee.class));
     }
 
     @Test
@@ -90,6 +250,51 @@ public class EmployeeServiceTest {
         assertThat(savedEmployees.size()).isEqualTo(3);
     }
 
+    @Test
+    void findAllFieldsEmployeeTest() {
+        List<Map<String, Object>> rows = Collections.singletonList(Collections.singletonMap("email", employee.getEmail()));
+        given(employeeRepository.findAllFields(Arrays.asList("email", "id"))).willReturn(rows);
+
+        List<Map<String, Object>> fields = employeeService.findAll(Arrays.asList("email", "id", "email"));
+        assertThat(fields).isEqualTo(rows);
+    }
+
+    @Test
+    void findAllUnknownFieldsEmployeeTestThrowsException() {
+        Assertions.assertThrows(InvalidFieldsException.class, () -> {
+            employeeService.findAll(Arrays.asList("id", "salary"));
+        });
+        verify(employeeRepository, never()).findAllFields(any());
+    }
+
+    @Test
+    void findPageEmployeeTest() {
+        Employee employee2 = Employee.builder()
+                .id(2L)
+                .firstName("rihanna")
+                .lastName("fenty")
+                .email("robyn@gmail.com")
+                .build();
+        List<Employee> employees = new ArrayList<>();
+        employees.add(employee);
+        employees.add(employee2);
+        given(employeeRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 2))).willReturn(employees);
+
+        EmployeePage page = employeeService.findPage(0L, 1);
+        assertThat(page.getEmployees()).containsExactly(employee);
+        assertThat(page.getNextAfter()).isEqualTo(employee.getId());
+    }
+
+    @Test
+    void findPageEmployeeTestCapsLimit() {
+        employeeProperties.getPage().setMaxLimit(2);
+        given(employeeRepository.findByIdGreaterThanOrderByIdAsc(5L, PageRequest.of(0, 3))).willReturn(new ArrayList<>());
+
+        EmployeePage page = employeeService.findPage(5L, 100);
+        assertThat(page.getEmployees()).isEmpty();
+        assertThat(page.getNextAfter()).isNull();
+    }
+
     @Test
     void findByIdEmployeeTest() {
         given(employeeRepository.findById(employee.getId())).willReturn(Optional.of(employee));
@@ -98,29 +303,266 @@ public class EmployeeServiceTest {
         assertThat(foundedEmployee.get()).isEqualTo(employee);
     }
 
+    @Test
+    void findByIdEmployeeTestServedByReplica() {
+        given(employeeReplica.get(employee.getId())).willReturn(Optional.of(employee));
+        assertThat(employeeService.findById(employee.getId())).contains(employee);
+        verify(employeeRepository, never()).findById(any());
+    }
+
+    //a reader may hold an older version than the last commit, only load and the after-commit listener fill the replica
+    @Test
+    void findByIdEmployeeTestDoesNotFillReplica() {
+        given(employeeRepository.findById(employee.getId())).willReturn(Optional.of(employee));
+        employeeService.findById(employee.getId());
+        verify(employeeReplica).get(employee.getId());
+        verifyNoMoreInteractions(employeeReplica);
+    }
+
+    @Test
+    void findByIdEmployeeTestHitsCache() {
+        given(employeeRepository.findById(employee.getId())).willReturn(Optional.of(employee));
+        employeeService.findById(employee.getId());
+        Optional<Employee> foundedEmployee = employeeService.findById(employee.getId());
+        assertThat(foundedEmployee).isPresent();
+        assertThat(foundedEmployee.get().getEmail()).isEqualTo(employee.getEmail());
+        verify(employeeRepository, times(1)).findById(employee.getId());
+    }
+
+    @Test
+    void findAllByIdEmployeeTest() {
+        Employee employee2 = employee.toBuilder().id(2L).email("rihanna@gmail.com").build();
+        employeeCache.put(employee2);
+        given(employeeRepository.findAllByIdInOrder(Arrays.asList(3L, 1L), 500)).willReturn(Arrays.asList(null, employee));
+
+        EmployeeLookup lookup = employeeService.findAllById(Arrays.asList(3L, 2L, 1L, 2L, null));
+        assertThat(lookup.getEmployees()).extracting(Employee::getId).containsExactly(2L, 1L);
+        assertThat(lookup.getMissing()).containsExactly(3L);
+        assertThat(employeeCache.get(1L)).isPresent();
+    }
+
+    @Test
+    void findAllByIdEmployeeTestAllCached() {
+        employeeCache.put(employee);
+        EmployeeLookup lookup = employeeService.findAllById(Collections.singletonList(employee.getId()));
+        assertThat(lookup.getEmployees()).extracting(Employee::getEmail).containsExactly(employee.getEmail());
+        assertThat(lookup.getMissing()).isEmpty();
+        verify(employeeRepository, never()).findAllByIdInOrder(anyList(), any(Integer.class));
+    }
+
+    @Test
+    void findAllByIdEmployeeTestTooManyIds() {
+        employeeProperties.getLookup().setMaxIds(2);
+        Assertions.assertThrows(TooManyIdsException.class, () -> employeeService.findAllById(Arrays.asList(1L, 2L, 3L)));
+        verify(employeeRepository, never()).findAllByIdInOrder(anyList(), any(Integer.class));
+    }
+
+    @Test
+    void updateAllEmployeeTest() {
+        employeeProperties.getBatch().setChunkSize(2);
+        employeeCache.put(employee);
+        Employee updated = employee.toBuilder().firstName("amir").version(1L).build();
+        given(employeeRepository.updateNamesByIdIn(Arrays.asList(1L, 2L), "amir", null)).willReturn(1);
+        given(employeeRepository.findAllByIdInOrder(Arrays.asList(1L, 2L), 2)).willReturn(Arrays.asList(updated, null));
+        given(employeeRepository.updateNamesByIdIn(Collections.singletonList(3L), "amir", null)).willReturn(0);
+
+        EmployeeBulkResult result = employeeService.updateAll(new EmployeeBulkUpdate(Arrays.asList(1L, 2L, 1L, 3L), "amir", null));
+        assertThat(result.getRequested()).isEqualTo(3);
+        assertThat(result.getAffected()).isEqualTo(1);
+        assertThat(employeeCache.get(1L)).isEmpty();
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof EmployeeChangedEvent
+                && ((EmployeeChangedEvent) event).getType() == EmployeeChangedEvent.Type.UPDATED
+                && ((EmployeeChangedEvent) event).getEmployee() == updated));
+    }
+
+    @Test
+    void updateAllEmployeeTestWithoutNames() {
+        Assertions.assertThrows(InvalidFieldsException.class,
+                () -> employeeService.updateAll(new EmployeeBulkUpdate(Arrays.asList(1L), null, null)));
+        Assertions.assertThrows(InvalidFieldsException.class,
+                () -> employeeService.updateAll(new EmployeeBulkUpdate(Arrays.asList(1L), " ", "jalian")));
+        verify(employeeRepository, never()).updateNamesByIdIn(anyCollection(), any(), any());
+    }
+
+    @Test
+    void deleteAllEmployeeTest() {
+        employeeCache.put(employee);
+        given(employeeRepository.findIdsInForUpdate(Arrays.asList(1L, 2L))).willReturn(Collections.singletonList(1L));
+        given(employeeRepository.removeByIdIn(Collections.singletonList(1L))).willReturn(1);
+
+        EmployeeBulkResult result = employeeService.deleteAll(Arrays.asList(1L, 2L));
+        assertThat(result.getRequested()).isEqualTo(2);
+        assertThat(result.getAffected()).isEqualTo(1);
+        assertThat(employeeCache.get(1L)).isEmpty();
+        verify(eventPublisher, times(1)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void findByEmailEmployeeTestHitsCache() {
+        given(employeeRepository.findByEmail(employee.getEmail())).willReturn(employee);
+        employeeService.findByEmail(employee.getEmail());
+        Optional<Employee> foundedEmployee = employeeService.findByEmail(employee.getEmail());
+        assertThat(foundedEmployee).isPresent();
+        assertThat(foundedEmployee.get().getId()).isEqualTo(employee.getId());
+        verify(employeeRepository, times(1)).findByEmail(employee.getEmail());
+    }
+
+    @Test
+    void findByIdEmployeeTestAfterUpdateIsNotStale() {
+        Employee updated = employee.toBuilder().firstName("amirhosein2").email("aj2@gmail.com").build();
+        given(employeeRepository.findById(employee.getId())).willReturn(Optional.of(employee));
+        employeeService.findById(employee.getId());
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.of(employee.toBuilder().build()));
+        employeeService.update(updated);
+
+        given(employeeRepository.findById(employee.getId())).willReturn(Optional.of(updated));
+        assertThat(employeeService.findById(employee.getId()).get().getFirstName()).isEqualTo("amirhosein2");
+        given(employeeRepository.findByEmail("aj@gmail.com")).willReturn(null);
+        assertThat(employeeService.findByEmail("aj@gmail.com")).isEmpty();
+    }
+
+    @Test
+    void findByIdEmployeeTestAfterDeleteIsNotStale() {
+        given(employeeRepository.findById(employee.getId())).willReturn(Optional.of(employee));
+        employeeService.findById(employee.getId());
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.of(employee.toBuilder().build()));
+        employeeService.delete(employee.getId());
+
+        given(employeeRepository.findById(employee.getId())).willReturn(Optional.empty());
+        assertThat(employeeService.findById(employee.getId())).isEmpty();
+    }
+
+    //the reader loads the old row, the update commits and evicts, and only then the reader puts what it loaded
+    @Test
+    void findByIdEmployeeTestConcurrentUpdateIsNotStale() throws Exception {
+        Employee updated = employee.toBuilder().firstName("amirhosein2").build();
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch evicted = new CountDownLatch(1);
+        given(employeeRepository.findById(employee.getId())).willAnswer(invocation -> {
+            loaded.countDown();
+            evicted.await(5, TimeUnit.SECONDS);
+            return Optional.of(employee.toBuilder().build());
+        });
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.of(employee.toBuilder().build()));
+
+        CompletableFuture<Optional<Employee>> reader = CompletableFuture.supplyAsync(() -> employeeService.findById(employee.getId()));
+        assertThat(loaded.await(5, TimeUnit.SECONDS)).isTrue();
+        employeeService.update(updated);
+        evicted.countDown();
+
+        assertThat(reader.get(5, TimeUnit.SECONDS).get().getFirstName()).isEqualTo("amirhosein");
+        assertThat(employeeCache.get(employee.getId())).isEmpty();
+    }
+
+    @Test
+    void findByIdEmployeeTestReturnsCopyOfCachedEmployee() {
+        given(employeeRepository.findById(employee.getId())).willReturn(Optional.of(employee));
+        employeeService.findById(employee.getId()).get().setFirstName("changed");
+        assertThat(employeeService.findById(employee.getId()).get().getFirstName()).isEqualTo("amirhosein");
+    }
+
     @Test
     void updateEmployeeTest() {
+        Employee existing = employee.toBuilder().version(3L).build();
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.of(existing));
         employee.setFirstName("amirhosein2");
-        given(employeeRepository.findById(employee.getId())).willReturn(Optional.of(employee));
-        given(employeeRepository.save(employee)).willReturn(employee);
         Employee updatedEmployee = employeeService.update(employee);
-        assertThat(updatedEmployee).isNotNull();
-        assertThat(updatedEmployee.getFirstName()).isEqualTo(employee.getFirstName());
+        assertThat(updatedEmployee).isSameAs(existing);
+        assertThat(updatedEmployee.getFirstName()).isEqualTo("amirhosein2");
+        verify(employeeRepository).flush();
+        verify(employeeRepository, never()).save(any(Employee.class));
+        verify(eventPublisher).publishEvent(argThat((EmployeeChangedEvent event) ->
+                event.getType() == EmployeeChangedEvent.Type.UPDATED && event.getId().equals(employee.getId())));
     }
 
     @Test
     void updateEmployeeTestWhichThrowsException() {
-        given(employeeRepository.findById(employee.getId())).willReturn(Optional.empty());
-        Assertions.assertThrows(RuntimeException.class, () -> {
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.empty());
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> {
             employeeService.update(employee);
         });
-        verify(employeeRepository, never()).save(any(Employee.class));
+        verify(employeeRepository, never()).flush();
+    }
+
+    @Test
+    void updateEmployeeTestWithTakenEmailThrowsException() {
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.of(employee.toBuilder().version(0L).build()));
+        willThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException(), "uk_employee_email")))
+                .given(employeeRepository).flush();
+        Assertions.assertThrows(ResourceAlreadyExistsException.class, () -> {
+            employeeService.update(employee);
+        });
+    }
+
+    //hibernate bumps the version of the locked entity on flush, the caller gets that entity and its version back
+    @Test
+    void updateEmployeeTestWithoutVersionReturnsVersion() {
+        Employee existing = employee.toBuilder().version(4L).build();
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.of(existing));
+        employee.setFirstName("amirhosein2");
+        assertThat(employeeService.update(employee)).isSameAs(existing)
+                .extracting(Employee::getVersion).isEqualTo(4L);
+    }
+
+    @Test
+    void updateEmployeeTestWithVersion() {
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.of(employee.toBuilder().version(3L).build()));
+        employee.setVersion(3L);
+        employee.setFirstName("amirhosein2");
+        assertThat(employeeService.update(employee).getFirstName()).isEqualTo("amirhosein2");
+    }
+
+    @Test
+    void updateEmployeeTestWithStaleVersionThrowsException() {
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.of(employee.toBuilder().version(4L).build()));
+        employee.setVersion(3L);
+        Assertions.assertThrows(PreconditionFailedException.class, () -> {
+            employeeService.update(employee);
+        });
+        verify(employeeRepository, never()).flush();
+    }
+
+    @Test
+    void deleteEmployeeTestWithStaleVersionThrowsException() {
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.of(employee.toBuilder().version(4L).build()));
+        Assertions.assertThrows(PreconditionFailedException.class, () -> {
+            employeeService.delete(employee.getId(), 3L);
+        });
+        verify(employeeRepository, never()).delete(any(Employee.class));
+    }
+
+    @Test
+    void deleteEmployeeTestWithVersionOfMissingEmployeeThrowsException() {
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.empty());
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> {
+            employeeService.delete(employee.getId(), 3L);
+        });
     }
 
     @Test
     void deleteEmployeeTest() {
-        willDoNothing().given(employeeRepository).deleteById(employee.getId());
+        Employee existing = employee.toBuilder().version(3L).build();
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.of(existing));
         employeeService.delete(employee.getId());
-        verify(employeeRepository, times(1)).deleteById(employee.getId());
+        verify(employeeRepository, times(1)).delete(existing);
+        verify(eventPublisher).publishEvent(argThat((EmployeeChangedEvent event) ->
+                event.getType() == EmployeeChangedEvent.Type.DELETED && event.getId().equals(employee.getId())));
+    }
+
+    @Test
+    void deleteEmployeeTestWhichThrowsException() {
+        given(employeeRepository.findByIdForUpdate(employee.getId())).willReturn(Optional.empty());
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> {
+            employeeService.delete(employee.getId());
+        });
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void searchEmployeeTest() {
+        given(employeeSearchIndex.search("amir", 1000)).willReturn(Collections.singletonList(employee));
+        List<Employee> employees = employeeService.search("amir", 5000);
+        assertThat(employees).containsExactly(employee);
     }
 }
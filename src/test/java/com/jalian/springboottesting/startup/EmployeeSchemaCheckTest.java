@@ -0,0 +1,39 @@
+package com.jalian.springboottesting.startup;
+
+import com.jalian.springboottesting.SpringBootTestingApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//both start from a table hibernate created before the email constraint existed, holding one email twice
+public class EmployeeSchemaCheckTest {
+
+    private static final String PRE_SERIES_TABLE = "create table if not exists employee (id bigint auto_increment primary key, "
+            + "email varchar(255), first_name varchar(255), last_name varchar(255))\\;"
+            + "merge into employee (id, email, first_name, last_name) key (id) values (1, 'aj@gmail.com', 'amirhosein', 'jalian')\\;"
+            + "merge into employee (id, email, first_name, last_name) key (id) values (2, 'aj@gmail.com', 'amir', 'jalian')";
+
+    @Test
+    void duplicateEmailsFailTheMigrationTest() {
+        assertThatThrownBy(() -> start("schema-check-migration", "--spring.profiles.active=fast-startup", "--spring.jpa.hibernate.ddl-auto=validate"))
+                .hasStackTraceContaining("aj@gmail.com (2 employees)");
+    }
+
+    //ddl-auto=update cannot add the constraint either, it only logs that
+    @Test
+    void missingConstraintRefusesToStartTest() {
+        assertThatThrownBy(() -> start("schema-check-update", "--spring.jpa.hibernate.ddl-auto=update"))
+                .hasStackTraceContaining("employee.email has no unique constraint");
+    }
+
+    private static void start(String database, String... args) {
+        String[] all = new String[args.length + 3];
+        all[0] = "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;MODE=MySQL;INIT=" + PRE_SERIES_TABLE;
+        all[1] = "--spring.datasource.username=sa";
+        all[2] = "--spring.datasource.password=";
+        System.arraycopy(args, 0, all, 3, args.length);
+        new SpringApplicationBuilder(SpringBootTestingApplication.class).web(WebApplicationType.NONE).run(all).close();
+    }
+}
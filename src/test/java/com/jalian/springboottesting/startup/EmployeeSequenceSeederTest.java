@@ -0,0 +1,52 @@
+package com.jalian.springboottesting.startup;
+
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sequence-seed;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+public class EmployeeSequenceSeederTest {
+
+    @Autowired
+    private EmployeeSequenceSeeder employeeSequenceSeeder;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("delete from employee_outbox");
+        jdbcTemplate.update("delete from employee");
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    //a row written back when ids came from IDENTITY, the sequence still starts at 1
+    @Test
+    void sequenceMovesPastExistingIdsTest() {
+        jdbcTemplate.update("insert into employee (id, first_name, last_name, email, version) values (1000, 'amirhosein', 'jalian', 'aj@gmail.com', 0)");
+        employeeSequenceSeeder.seed();
+        employeeSequenceSeeder.seed();
+
+        Employee employee = employeeService.save(Employee.builder().firstName("robyn").lastName("fenty").email("rihanna@gmail.com").build());
+
+        assertThat(employee.getId()).isGreaterThan(1000L);
+    }
+}
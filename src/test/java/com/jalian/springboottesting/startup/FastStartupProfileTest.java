@@ -0,0 +1,63 @@
+package com.jalian.springboottesting.startup;
+
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeChangeService;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//validate makes hibernate check the flyway schema against the entities
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fast-startup;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@ActiveProfiles("fast-startup")
+@AutoConfigureMockMvc
+public class FastStartupProfileTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StartupWarmup startupWarmup;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EmployeeChangeService employeeChangeService;
+
+    @Test
+    void readinessWaitsForWarmUpTest() throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!startupWarmup.isWarm() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(startupWarmup.isWarm()).isTrue();
+        mockMvc.perform(get("/actuator/health/readiness"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("UP")));
+    }
+
+    @Test
+    void changesAreRelayedTest() throws Exception {
+        employeeService.save(Employee.builder().firstName("amirhosein").lastName("jalian").email("aj@gmail.com").build());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (employeeChangeService.lastPosition() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(employeeChangeService.lastPosition()).isEqualTo(1);
+    }
+}
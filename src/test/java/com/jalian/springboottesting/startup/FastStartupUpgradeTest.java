@@ -0,0 +1,42 @@
+package com.jalian.springboottesting.startup;
+
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//the database hibernate created before the series: IDENTITY ids, no version, no employee_seq and no outbox
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fast-startup-upgrade;DB_CLOSE_DELAY=-1;MODE=MySQL;"
+                + "INIT=create table if not exists employee (id bigint auto_increment primary key, email varchar(255), first_name varchar(255), last_name varchar(255))\\\\;"
+                + "merge into employee (id, email, first_name, last_name) key (id) values (1000, 'aj@gmail.com', 'amirhosein', 'jalian')",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@ActiveProfiles("fast-startup")
+public class FastStartupUpgradeTest {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void preSeriesSchemaIsUpgradedTest() {
+        assertThat(jdbcTemplate.queryForList("select \"version\" from \"flyway_schema_history\" where \"version\" is not null order by \"installed_rank\"", String.class))
+                .startsWith("1", "2");
+        assertThat(employeeService.findById(1000L).get().getVersion()).isZero();
+
+        Employee employee = employeeService.save(Employee.builder().firstName("robyn").lastName("fenty").email("rihanna@gmail.com").build());
+
+        assertThat(employee.getId()).isGreaterThan(1000L);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from employee_outbox where employee_id = ?", Long.class, employee.getId())).isEqualTo(1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.jalian.springboottesting.writebehind;
+
+import com.jalian.springboottesting.dto.EmployeeWrite;
+import com.jalian.springboottesting.exception.ResourceAlreadyExistsException;
+import com.jalian.springboottesting.model.Employee;
+import com.jalian.springboottesting.service.EmployeeWriteBehindService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:writebehind;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "employee.write-behind.enabled=true"
+})
+public class EmployeeWriteBehindTest {
+
+    @Autowired
+    private EmployeeWriteBehindService employeeWriteBehindService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @AfterEach
+    void cleanup() {
+        jdbcTemplate.update("delete from employee_outbox");
+        jdbcTemplate.update("delete from employee");
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void concurrentCreatesAreCommittedBeforeTheyReturnTest() throws Exception {
+        List<CompletableFuture<Employee>> saves = IntStream.range(0, 50)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> employeeWriteBehindService.save(employee("aj" + i + "@gmail.com"))))
+                .collect(Collectors.toList());
+        for (CompletableFuture<Employee> save : saves) {
+            Employee saved = save.get(10, TimeUnit.SECONDS);
+            assertThat(jdbcTemplate.queryForObject("select count(*) from employee where id = ?", Long.class, saved.getId()))
+                    .isEqualTo(1L);
+        }
+        assertThat(jdbcTemplate.queryForObject("select count(*) from employee", Long.class)).isEqualTo(50L);
+    }
+
+    @Test
+    void duplicateEmailIsRejectedTest() {
+        employeeWriteBehindService.save(employee("aj@gmail.com"));
+
+        assertThatThrownBy(() -> employeeWriteBehindService.save(employee("aj@gmail.com")))
+                .isInstanceOf(ResourceAlreadyExistsException.class);
+    }
+
+    @Test
+    void submittedCreateReportsItsStatusTest() throws Exception {
+        EmployeeWrite accepted = employeeWriteBehindService.submit(employee("aj@gmail.com"));
+
+        EmployeeWrite write = accepted;
+        for (int i = 0; i < 100 && write.getStatus() == EmployeeWrite.Status.PENDING; i++) {
+            TimeUnit.MILLISECONDS.sleep(50);
+            write = employeeWriteBehindService.findWrite(accepted.getId()).get();
+        }
+        assertThat(write.getStatus()).isEqualTo(EmployeeWrite.Status.CREATED);
+        assertThat(jdbcTemplate.queryForObject("select email from employee where id = ?", String.class, write.getEmployeeId()))
+                .isEqualTo("aj@gmail.com");
+    }
+
+    private static Employee employee(String email) {
+        return Employee.builder().firstName("amirhosein").lastName("jalian").email(email).build();
+    }
+}
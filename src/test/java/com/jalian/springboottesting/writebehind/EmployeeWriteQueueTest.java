@@ -0,0 +1,222 @@
+package com.jalian.springboottesting.writebehind;
+
+import com.jalian.springboottesting.config.EmployeeProperties;
+import com.jalian.springboottesting.dto.EmployeeBatchResult;
+import com.jalian.springboottesting.dto.EmployeeWrite;
+import com.jalian.springboottesting.exception.WriteQueueFullException;
+import com.jalian.springboottesting.model.Employee;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class EmployeeWriteQueueTest {
+
+    private final EmployeeProperties.WriteBehind settings = new EmployeeProperties.WriteBehind();
+
+    private final AtomicLong ids = new AtomicLong();
+
+    //sizes of the groups handed to saveAll
+    private final List<Integer> groups = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private EmployeeWriteQueue queue;
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        release.countDown();
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    void queuedCreatesShareOneCommitTest() throws Exception {
+        queue = new EmployeeWriteQueue(this::blockFirstGroup, settings);
+
+        //the first group holds the writer while the next one queues up behind it
+        EmployeeWriteQueue.Write first = queue.submit(employee("aj0@gmail.com"), false);
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        List<EmployeeWriteQueue.Write> others = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            others.add(queue.submit(employee("aj" + i + "@gmail.com"), false));
+        }
+        release.countDown();
+
+        assertThat(first.getResult().get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(EmployeeBatchResult.Status.CREATED);
+        for (EmployeeWriteQueue.Write other : others) {
+            assertThat(other.getResult().get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        }
+        assertThat(groups).containsExactly(1, 10);
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    void groupsAreCappedTest() throws Exception {
+        settings.setMaxBatchSize(4);
+        queue = new EmployeeWriteQueue(this::blockFirstGroup, settings);
+
+        queue.submit(employee("aj0@gmail.com"), false);
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        EmployeeWriteQueue.Write last = null;
+        for (int i = 1; i <= 10; i++) {
+            last = queue.submit(employee("aj" + i + "@gmail.com"), false);
+        }
+        release.countDown();
+        last.getResult().get(5, TimeUnit.SECONDS);
+
+        assertThat(groups).containsExactly(1, 4, 4, 2);
+    }
+
+    @Test
+    void fullQueueRejectsTest() throws Exception {
+        settings.setCapacity(2);
+        queue = new EmployeeWriteQueue(this::blockFirstGroup, settings);
+
+        queue.submit(employee("aj0@gmail.com"), false);
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        queue.submit(employee("aj1@gmail.com"), false);
+        queue.submit(employee("aj2@gmail.com"), false);
+
+        assertThatThrownBy(() -> queue.submit(employee("aj3@gmail.com"), false))
+                .isInstanceOf(WriteQueueFullException.class);
+        release.countDown();
+    }
+
+    //one bad row rolls its group back, the others are written one by one
+    @Test
+    void failedGroupIsRetriedRowByRowTest() throws Exception {
+        queue = new EmployeeWriteQueue(employees -> {
+            if (employees.stream().anyMatch(employee -> employee.getEmail().startsWith("bad"))) {
+                throw new DataIntegrityViolationException("bad row");
+            }
+            return blockFirstGroup(employees);
+        }, settings);
+
+        EmployeeWriteQueue.Write blocking = queue.submit(employee("aj0@gmail.com"), false);
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        EmployeeWriteQueue.Write good = queue.submit(employee("aj1@gmail.com"), true);
+        EmployeeWriteQueue.Write bad = queue.submit(employee("bad@gmail.com"), true);
+        release.countDown();
+
+        assertThat(good.getResult().get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(EmployeeBatchResult.Status.CREATED);
+        assertThatThrownBy(() -> bad.getResult().get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(DataIntegrityViolationException.class);
+        assertThat(blocking.getResult().isDone()).isTrue();
+        assertThat(queue.find(good.getId())).get().extracting(EmployeeWrite::getStatus).isEqualTo(EmployeeWrite.Status.CREATED);
+        assertThat(queue.find(bad.getId())).get().extracting(EmployeeWrite::getStatus).isEqualTo(EmployeeWrite.Status.FAILED);
+    }
+
+    //an error fails its group, the writer stays alive for the next one
+    @Test
+    void errorFailsTheGroupButNotTheWriterTest() throws Exception {
+        queue = new EmployeeWriteQueue(employees -> {
+            if (employees.get(0).getEmail().startsWith("error")) {
+                throw new StackOverflowError();
+            }
+            return created(employees);
+        }, settings);
+
+        EmployeeWriteQueue.Write failed = queue.submit(employee("error@gmail.com"), false);
+        assertThatThrownBy(() -> failed.getResult().get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+        EmployeeWriteQueue.Write next = queue.submit(employee("aj0@gmail.com"), false);
+
+        assertThat(next.getResult().get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(EmployeeBatchResult.Status.CREATED);
+        assertThat(queue.isWriterAlive()).isTrue();
+    }
+
+    //a caller that stopped waiting on an untracked write can look it up from then on
+    @Test
+    void trackedWhilePendingTest() throws Exception {
+        queue = new EmployeeWriteQueue(this::blockFirstGroup, settings);
+
+        EmployeeWriteQueue.Write write = queue.submit(employee("aj0@gmail.com"), false);
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queue.track(write)).isTrue();
+        assertThat(queue.find(write.getId())).get().extracting(EmployeeWrite::getStatus).isEqualTo(EmployeeWrite.Status.PENDING);
+        release.countDown();
+        write.getResult().get(5, TimeUnit.SECONDS);
+
+        assertThat(queue.find(write.getId())).get().extracting(EmployeeWrite::getStatus).isEqualTo(EmployeeWrite.Status.CREATED);
+        EmployeeWriteQueue.Write finished = queue.submit(employee("aj1@gmail.com"), false);
+        finished.getResult().get(5, TimeUnit.SECONDS);
+        assertThat(queue.track(finished)).isFalse();
+        assertThat(queue.find(finished.getId())).isEmpty();
+    }
+
+    //the writer retains a write before it completes the result, so the evictions are visible once get returns.
+    //repeated because a wrong order only shows up now and then
+    @RepeatedTest(20)
+    void onlyTrackedWritesAreRetainedTest() throws Exception {
+        settings.setRetainedWrites(1);
+        queue = new EmployeeWriteQueue(this::created, settings);
+
+        EmployeeWriteQueue.Write untracked = queue.submit(employee("aj0@gmail.com"), false);
+        EmployeeWriteQueue.Write evicted = queue.submit(employee("aj1@gmail.com"), true);
+        evicted.getResult().get(5, TimeUnit.SECONDS);
+        EmployeeWriteQueue.Write retained = queue.submit(employee("aj2@gmail.com"), true);
+        Long employeeId = retained.getResult().get(5, TimeUnit.SECONDS).getId();
+
+        assertThat(queue.find(untracked.getId())).isEmpty();
+        assertThat(queue.find(evicted.getId())).isEmpty();
+        assertThat(queue.find(retained.getId())).get().satisfies(write -> {
+            assertThat(write.getStatus()).isEqualTo(EmployeeWrite.Status.CREATED);
+            assertThat(write.getEmployeeId()).isEqualTo(employeeId);
+            assertThat(write.getCommittedAt()).isNotNull();
+        });
+    }
+
+    @Test
+    void shutdownDrainsTheQueueTest() throws Exception {
+        queue = new EmployeeWriteQueue(this::created, settings);
+        List<EmployeeWriteQueue.Write> writes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            writes.add(queue.submit(employee("aj" + i + "@gmail.com"), false));
+        }
+
+        queue.shutdown();
+
+        assertThat(writes).allMatch(write -> write.getResult().isDone() && !write.getResult().isCompletedExceptionally());
+        assertThat(ids.get()).isEqualTo(1000);
+        assertThatThrownBy(() -> queue.submit(employee("late@gmail.com"), false))
+                .isInstanceOf(WriteQueueFullException.class);
+    }
+
+    private List<EmployeeBatchResult> blockFirstGroup(List<Employee> employees) {
+        if (groups.isEmpty()) {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return created(employees);
+    }
+
+    private List<EmployeeBatchResult> created(List<Employee> employees) {
+        groups.add(employees.size());
+        List<EmployeeBatchResult> results = new ArrayList<>();
+        for (int index = 0; index < employees.size(); index++) {
+            employees.get(index).setId(ids.incrementAndGet());
+            results.add(EmployeeBatchResult.created(index, employees.get(index).getId()));
+        }
+        return results;
+    }
+
+    private static Employee employee(String email) {
+        return Employee.builder().firstName("amirhosein").lastName("jalian").email(email).build();
+    }
+}